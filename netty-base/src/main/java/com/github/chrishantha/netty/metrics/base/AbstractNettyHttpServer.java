@@ -17,28 +17,44 @@ package com.github.chrishantha.netty.metrics.base;
 
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.ParameterException;
+import com.github.chrishantha.netty.metrics.base.allocator.AllocatorMetrics;
+import com.github.chrishantha.netty.metrics.base.args.CompressionMode;
 import com.github.chrishantha.netty.metrics.base.args.HandlerArgs;
 import com.github.chrishantha.netty.metrics.base.args.ServerArgs;
+import com.github.chrishantha.netty.metrics.base.backpressure.BackpressureMetrics;
+import com.github.chrishantha.netty.metrics.base.connection.ConnectionMetrics;
+import com.github.chrishantha.netty.metrics.base.eventloop.EventLoopProbe;
+import com.github.chrishantha.netty.metrics.base.sampling.RequestSampler;
+import com.github.chrishantha.netty.metrics.base.ssl.HandshakeMetrics;
+import com.github.chrishantha.netty.metrics.base.ssl.SslContextFactory;
+import com.github.chrishantha.netty.metrics.base.transport.Transport;
 import io.netty.bootstrap.ServerBootstrap;
-import io.netty.channel.ChannelFuture;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufAllocatorMetricProvider;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.epoll.EpollChannelOption;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
-import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpContentCompressor;
 import io.netty.handler.codec.http.HttpServerCodec;
 import io.netty.handler.ssl.SslContext;
-import io.netty.handler.ssl.SslContextBuilder;
-import io.netty.handler.ssl.util.SelfSignedCertificate;
+import io.netty.handler.stream.ChunkedWriteHandler;
 import io.netty.util.Version;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.ServiceLoader;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Abstract Netty HTTP Server
@@ -75,75 +91,200 @@ public abstract class AbstractNettyHttpServer implements NettyHttpServer {
             return;
         }
 
+        if (serverArgs.isEnableSSL()) {
+            SslContextFactory.setSystemProperties(serverArgs);
+        }
         nettyHttpServer.init(serverArgs);
         nettyHttpServer.startServer(serverArgs, handlerArgs);
     }
 
+    /**
+     * Write metrics in the Prometheus text exposition format. Used when metrics are served from Netty.
+     *
+     * @param writer Writer for the exposition
+     * @throws IOException if the metrics cannot be written
+     */
+    protected abstract void writeMetrics(Writer writer) throws IOException;
+
+    /**
+     * Register the metrics of the event loop probes with the metrics backend. Called only when the probes are enabled.
+     *
+     * @param probes Probes of the boss and worker event loops
+     */
+    protected abstract void registerEventLoopMetrics(List<EventLoopProbe> probes);
+
+    /**
+     * Create the connection metrics recorded with the metrics backend. Called only when connection metrics are
+     * enabled.
+     *
+     * @return Connection metrics
+     */
+    protected abstract ConnectionMetrics newConnectionMetrics();
+
+    /**
+     * Register the metrics of the buffer allocator used by the server channels with the metrics backend.
+     *
+     * @param allocatorMetrics Allocator metrics
+     */
+    protected abstract void registerAllocatorMetrics(AllocatorMetrics allocatorMetrics);
+
+    /**
+     * Register the write backpressure metrics with the metrics backend.
+     *
+     * @param backpressureMetrics Backpressure metrics
+     */
+    protected abstract void registerBackpressureMetrics(BackpressureMetrics backpressureMetrics);
+
+    /**
+     * Create the TLS handshake metrics recorded with the metrics backend. Called only when SSL is enabled.
+     *
+     * @return Handshake metrics
+     */
+    protected abstract HandshakeMetrics newHandshakeMetrics();
+
+    /**
+     * Register the request sampling metrics with the metrics backend.
+     *
+     * @param requestSampler Sampler of the requests recorded in the latency and size distributions
+     */
+    protected abstract void registerSamplingMetrics(RequestSampler requestSampler);
+
     @Override
     public final void startServer(ServerArgs serverArgs, HandlerArgs handlerArgs) throws Exception {
         logger.info("Netty HTTP Server. Port: {}, Metrics Port: {}, Boss Threads: {}, Worker Threads: {}," +
-                        " SSL Enabled: {}, Sleep Time: {}ms, Random Sleep: {}, Payload Size: {}B, Random Payload: {}" +
-                        " Random Status Codes: {}",
+                        " Netty Metrics Server: {}, Event Loop Probe Interval: {}ms, Connection Metrics: {}," +
+                        " Allocator: {}, Write Buffer Water Mark: {}-{}B, Flush Consolidation: {}, SSL Enabled: {}," +
+                        " HTTP/2 Enabled: {}, Streaming: {}, Sleep Time: {}ms, Random Sleep: {}, Sleep Mode: {}," +
+                        " Payload Size: {}B, Random Payload: {} Random Status Codes: {}, Compression: {}," +
+                        " Sample Rate: {}, Workload Profile: {}",
                 serverArgs.getPort(), serverArgs.getMetricsPort(), serverArgs.getBossThreads(),
-                serverArgs.getWorkerThreads(), serverArgs.isEnableSSL(), handlerArgs.getSleepTime(),
-                handlerArgs.isRandomSleep(), handlerArgs.getPayloadSize(), handlerArgs.isRandomPayload(),
-                handlerArgs.isRandomStatusCode());
+                serverArgs.getWorkerThreads(), serverArgs.isNettyMetricsServer(),
+                serverArgs.getEventLoopProbeInterval(), serverArgs.isConnectionMetrics(), serverArgs.getAllocator(),
+                serverArgs.getWriteBufferLowWaterMark(), serverArgs.getWriteBufferHighWaterMark(),
+                serverArgs.getFlushConsolidation(), serverArgs.isEnableSSL(), serverArgs.isHttp2(),
+                serverArgs.isStreaming(), handlerArgs.getSleepTime(), handlerArgs.isRandomSleep(),
+                handlerArgs.getSleepMode(), handlerArgs.getPayloadSize(), handlerArgs.isRandomPayload(),
+                handlerArgs.isRandomStatusCode(), handlerArgs.getCompression(),
+                handlerArgs.getSampleRate(), handlerArgs.getWorkloadProfile());
         // Print Max Heap Size
         logger.info("Max Heap Size: {}MB", Runtime.getRuntime().maxMemory() / (1024 * 1024));
         // Print Netty Version
         Version version = Version.identify(this.getClass().getClassLoader()).values().iterator().next();
         logger.info("Netty Version: {}", version.artifactVersion());
 
-        // Configure SSL.
-        final SslContext sslCtx;
-        if (serverArgs.isEnableSSL()) {
-            SelfSignedCertificate ssc = new SelfSignedCertificate();
-            sslCtx = SslContextBuilder.forServer(ssc.certificate(), ssc.privateKey()).build();
-        } else {
-            sslCtx = null;
+        Transport transport = serverArgs.getTransport().resolve();
+        if (serverArgs.getTransport() != Transport.AUTO && serverArgs.getTransport() != transport) {
+            logger.warn("{} transport is not available. Falling back to {}", serverArgs.getTransport(), transport);
+        }
+        logger.info("Transport: {}", transport);
+        if (transport != Transport.EPOLL && (serverArgs.isReusePort() || serverArgs.getTcpFastOpen() > 0)) {
+            logger.warn("SO_REUSEPORT and TCP_FASTOPEN are supported only with the epoll transport. Ignoring.");
         }
 
+        // Configure SSL.
+        final SslContext sslCtx = serverArgs.isEnableSSL() ? SslContextFactory.newServerContext(serverArgs) : null;
+
+        final ByteBufAllocator allocator = serverArgs.getAllocator().newAllocator();
+        registerAllocatorMetrics(new AllocatorMetrics(((ByteBufAllocatorMetricProvider) allocator).metric()));
+
         // Configure the server.
-        EventLoopGroup bossGroup = new NioEventLoopGroup(serverArgs.getBossThreads());
-        EventLoopGroup workerGroup = new NioEventLoopGroup(serverArgs.getWorkerThreads());
+        EventLoopGroup bossGroup = transport.newEventLoopGroup(serverArgs.getBossThreads());
+        EventLoopGroup workerGroup = transport.newEventLoopGroup(serverArgs.getWorkerThreads());
         try {
-            final NettyHttpServer nettyHttpServer = this;
+            if (serverArgs.getEventLoopProbeInterval() > 0) {
+                List<EventLoopProbe> probes = new ArrayList<>();
+                probes.addAll(EventLoopProbe.start("boss", bossGroup, serverArgs.getEventLoopProbeInterval(),
+                        TimeUnit.MILLISECONDS));
+                probes.addAll(EventLoopProbe.start("worker", workerGroup, serverArgs.getEventLoopProbeInterval(),
+                        TimeUnit.MILLISECONDS));
+                registerEventLoopMetrics(probes);
+            }
+
             ServerBootstrap b = new ServerBootstrap();
             b.group(bossGroup, workerGroup)
-                    .channel(NioServerSocketChannel.class)
+                    .channel(transport.serverChannelClass())
                     .option(ChannelOption.SO_BACKLOG, 1024)
-                    .childOption(ChannelOption.SO_KEEPALIVE, true)
-                    .childHandler(new ChannelInitializer<SocketChannel>() {
-                        @Override
-                        public void initChannel(SocketChannel ch) {
-                            Iterator<NettyHttpServerHandler> handlerIterator = ServiceLoader.
-                                    load(NettyHttpServerHandler.class).iterator();
-                            if (!handlerIterator.hasNext()) {
-                                throw new IllegalStateException("Could not load Netty HTTP Server Handler");
-                            }
-                            @SuppressWarnings("unchecked")
-                            NettyHttpServerHandler<NettyHttpServer> nettyHttpServerHandler = handlerIterator.next();
-                            nettyHttpServerHandler.init(handlerArgs, nettyHttpServer);
-                            ChannelPipeline p = ch.pipeline();
-                            if (sslCtx != null) {
-                                p.addLast(sslCtx.newHandler(ch.alloc()));
-                            }
-                            p.addLast(new HttpServerCodec());
-                            p.addLast("aggregator", new HttpObjectAggregator(1048576));
-                            p.addLast(nettyHttpServerHandler);
-                        }
-                    });
+                    .option(ChannelOption.ALLOCATOR, allocator)
+                    .childOption(ChannelOption.ALLOCATOR, allocator)
+                    .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(
+                            serverArgs.getWriteBufferLowWaterMark(), serverArgs.getWriteBufferHighWaterMark()))
+                    .childOption(ChannelOption.SO_KEEPALIVE, true);
+            int listeners = 1;
+            if (transport == Transport.EPOLL) {
+                b.option(EpollChannelOption.EPOLL_MODE, serverArgs.getEpollMode())
+                        .childOption(EpollChannelOption.EPOLL_MODE, serverArgs.getEpollMode());
+                if (serverArgs.getTcpFastOpen() > 0) {
+                    b.option(EpollChannelOption.TCP_FASTOPEN, serverArgs.getTcpFastOpen());
+                }
+                if (serverArgs.isReusePort()) {
+                    // Each bind registers a new listener on the next boss event loop
+                    b.option(EpollChannelOption.SO_REUSEPORT, true);
+                    listeners = serverArgs.getBossThreads();
+                }
+            }
+            ConnectionMetrics connectionMetrics = serverArgs.isConnectionMetrics() ? newConnectionMetrics() : null;
+            HandshakeMetrics handshakeMetrics = sslCtx != null ? newHandshakeMetrics() : null;
+            BackpressureMetrics backpressureMetrics = new BackpressureMetrics();
+            registerBackpressureMetrics(backpressureMetrics);
+            NettyHttpServerHandler<NettyHttpServer> nettyHttpServerHandler = loadHandler(handlerArgs);
+            registerSamplingMetrics(nettyHttpServerHandler.getRequestSampler());
+            b.childHandler(new HttpServerInitializer(serverArgs, nettyHttpServerHandler, sslCtx, connectionMetrics,
+                    handshakeMetrics, backpressureMetrics, handlerArgs.getCompression() == CompressionMode.DYNAMIC));
 
             // Start the server.
             // Bind and start to accept incoming connections.
-            ChannelFuture f = b.bind(serverArgs.getPort()).sync();
+            List<Channel> channels = new ArrayList<>(listeners + 1);
+            for (int i = 0; i < listeners; i++) {
+                channels.add(b.bind(serverArgs.getPort()).sync().channel());
+            }
 
-            // Wait until the server socket is closed.
-            f.channel().closeFuture().sync();
+            if (serverArgs.isNettyMetricsServer()) {
+                // Serve metrics using the same event loops
+                final MetricsHandler metricsHandler = new MetricsHandler(this);
+                ServerBootstrap metricsBootstrap = new ServerBootstrap();
+                metricsBootstrap.group(bossGroup, workerGroup)
+                        .channel(transport.serverChannelClass())
+                        .option(ChannelOption.ALLOCATOR, allocator)
+                        .childOption(ChannelOption.ALLOCATOR, allocator)
+                        .childHandler(new ChannelInitializer<SocketChannel>() {
+                            @Override
+                            public void initChannel(SocketChannel ch) {
+                                ChannelPipeline p = ch.pipeline();
+                                p.addLast(new HttpServerCodec());
+                                p.addLast(new HttpContentCompressor());
+                                p.addLast(new ChunkedWriteHandler());
+                                p.addLast(metricsHandler);
+                            }
+                        });
+                channels.add(metricsBootstrap.bind(serverArgs.getMetricsPort()).sync().channel());
+            }
+
+            // Wait until the server sockets are closed.
+            for (Channel channel : channels) {
+                channel.closeFuture().sync();
+            }
         } finally {
             // Shut down all event loops to terminate all threads.
             bossGroup.shutdownGracefully();
             workerGroup.shutdownGracefully();
         }
     }
+
+    /**
+     * Load and initialize the handler, which is shared by all channels.
+     */
+    private NettyHttpServerHandler<NettyHttpServer> loadHandler(HandlerArgs handlerArgs) {
+        Iterator<NettyHttpServerHandler> handlerIterator = ServiceLoader.load(NettyHttpServerHandler.class).iterator();
+        if (!handlerIterator.hasNext()) {
+            throw new IllegalStateException("Could not load Netty HTTP Server Handler");
+        }
+        @SuppressWarnings("unchecked")
+        NettyHttpServerHandler<NettyHttpServer> nettyHttpServerHandler = handlerIterator.next();
+        if (!nettyHttpServerHandler.getClass().isAnnotationPresent(ChannelHandler.Sharable.class)) {
+            throw new IllegalStateException("Netty HTTP Server Handler must be sharable: "
+                    + nettyHttpServerHandler.getClass().getName());
+        }
+        nettyHttpServerHandler.init(handlerArgs, this);
+        return nettyHttpServerHandler;
+    }
 }
@@ -15,37 +15,104 @@
  */
 package com.github.chrishantha.netty.metrics.base;
 
+import com.github.chrishantha.netty.metrics.base.args.CompressionMode;
 import com.github.chrishantha.netty.metrics.base.args.HandlerArgs;
-import io.netty.buffer.Unpooled;
+import com.github.chrishantha.netty.metrics.base.args.SleepMode;
+import com.github.chrishantha.netty.metrics.base.backpressure.ReadSuspension;
+import com.github.chrishantha.netty.metrics.base.compression.CompressedPayloads;
+import com.github.chrishantha.netty.metrics.base.compression.ContentEncoding;
+import com.github.chrishantha.netty.metrics.base.sampling.RequestSampler;
+import com.github.chrishantha.netty.metrics.base.workload.WorkloadProfile;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpResponse;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpContent;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpHeaderValues;
 import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpObject;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.DefaultThreadFactory;
 
-import java.nio.charset.Charset;
-import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
 
 /**
  * Netty HTTP Server Handler implementing Netty ChannelInboundHandler
+ * <p>
+ * The handler responds to aggregated {@link FullHttpRequest}s. When the server is started in streaming mode, the
+ * handler receives the request head and content chunks separately and streams a chunked response back.
+ * <p>
+ * In precompressed compression mode, GET responses are served from {@link CompressedPayloads} when the client accepts
+ * a supported encoding.
+ * <p>
+ * The request counters are updated for every request. The latency and size distributions are recorded only for the
+ * requests selected by the {@link RequestSampler}, with the weight given by the sampler.
+ * <p>
+ * The sleep time, payload size and status code of each response are sampled from the route of the request in the
+ * {@link WorkloadProfile}.
+ * <p>
+ * A single handler instance is shared by all channels. Implementations must not keep per request state in fields.
  */
+@ChannelHandler.Sharable
 public abstract class AbstractNettyHttpServerHandler<T extends NettyHttpServer>
-        extends SimpleChannelInboundHandler<FullHttpRequest> implements NettyHttpServerHandler<T> {
+        extends SimpleChannelInboundHandler<HttpObject> implements NettyHttpServerHandler<T> {
 
-    private static final Random random = new Random();
+    private static final AttributeKey<StreamingRequest> STREAMING_REQUEST =
+            AttributeKey.valueOf(AbstractNettyHttpServerHandler.class, "streamingRequest");
+
+    private static final int CHUNK_SIZE = 8192;
 
     private HandlerArgs handlerArgs;
 
+    private ResponsePayload responsePayload;
+
+    private CompressedPayloads compressedPayloads;
+
+    private RequestSampler requestSampler;
+
+    private WorkloadProfile workloadProfile;
+
+    private ExecutorService offloadExecutor;
+
     protected void setHandlerArgs(HandlerArgs handlerArgs) {
         this.handlerArgs = handlerArgs;
+        this.workloadProfile = WorkloadProfile.load(handlerArgs);
+        // Payloads are rendered at the largest size of the profile, so that no payload size is capped
+        this.responsePayload = ResponsePayload.getInstance(workloadProfile.getMaxPayloadSize());
+        this.compressedPayloads = handlerArgs.getCompression() == CompressionMode.PRECOMPRESSED ?
+                new CompressedPayloads(responsePayload) : null;
+        this.requestSampler = new RequestSampler(handlerArgs.getSampleRate());
+        if (handlerArgs.getSleepMode() == SleepMode.OFFLOAD) {
+            // Threads are started on demand and stopped when idle
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(handlerArgs.getOffloadThreads(),
+                    handlerArgs.getOffloadThreads(), 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                    new DefaultThreadFactory("offload", true));
+            executor.allowCoreThreadTimeOut(true);
+            this.offloadExecutor = executor;
+        }
+    }
+
+    @Override
+    public final RequestSampler getRequestSampler() {
+        return requestSampler;
     }
 
     @Override
@@ -53,60 +120,218 @@ public abstract class AbstractNettyHttpServerHandler<T extends NettyHttpServer>
         ctx.flush();
     }
 
-    protected abstract Object requestStart(String method, String uri);
+    @Override
+    public final void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        // End a streaming request, which was interrupted by the client
+        StreamingRequest streamingRequest = ctx.channel().attr(STREAMING_REQUEST).getAndSet(null);
+        if (streamingRequest != null) {
+            requestEnd(streamingRequest.method, streamingRequest.uri, streamingRequest.status.code(),
+                    streamingRequest.requestStart, streamingRequest.weight);
+        }
+        super.channelInactive(ctx);
+    }
+
+    /**
+     * Called when a request is received.
+     *
+     * @return Request start time in nanoseconds, which is passed to
+     * {@link #requestEnd(String, String, int, long, int)}
+     */
+    protected abstract long requestStart(String method, String uri);
 
-    protected abstract void requestEnd(String method, String uri, int statusCode, Object object);
+    /**
+     * Called when the response is written.
+     *
+     * @param weight Weight of the request latency or zero if the request is not sampled. The counters must be
+     *               updated regardless of the weight.
+     */
+    protected abstract void requestEnd(String method, String uri, int statusCode, long startNanos, int weight);
 
-    protected abstract Object sleepStart();
+    /**
+     * Called before sleeping. The sleep time, request size and response size methods are called only for sampled
+     * requests, with the weight of the request.
+     *
+     * @return Sleep start time in nanoseconds, which is passed to {@link #sleepEnd(long, int)}
+     */
+    protected abstract long sleepStart();
 
-    protected abstract void sleepEnd(Object object);
+    protected abstract void sleepEnd(long startNanos, int weight);
 
-    protected abstract void requestSize(int size);
+    protected abstract void requestSize(int size, int weight);
 
-    protected abstract void responseSize(int size);
+    /**
+     * Called with the size of the response content before any compression.
+     */
+    protected abstract void responseSize(int size, int weight);
+
+    /**
+     * Called with the size of the response content, when a precompressed response is served.
+     */
+    protected abstract void compressedResponseSize(int size, int weight);
+
+    /**
+     * Called in streaming mode when the first content of the response is written, or when the response ends without
+     * any content. The response head is sent when the request is received, so this measures the time to the first
+     * byte of the response body.
+     *
+     * @param startNanos Request start time returned by {@link #requestStart(String, String)}
+     */
+    protected abstract void firstByte(long startNanos, int weight);
 
     @Override
-    protected final void channelRead0(ChannelHandlerContext ctx, FullHttpRequest msg) {
-        Object requestStart = requestStart(msg.method().name(), msg.uri());
-        HttpResponseStatus status = HttpResponseStatus.OK;
-        try {
-            requestSize(msg.content().readableBytes());
-            if (handlerArgs.getSleepTime() > 0) {
-                long sleepTime = handlerArgs.isRandomSleep() ? random.nextInt(handlerArgs.getSleepTime())
-                        : handlerArgs.getSleepTime();
-                Object sleepStart = sleepStart();
+    protected final void channelRead0(ChannelHandlerContext ctx, HttpObject msg) {
+        if (msg instanceof FullHttpRequest) {
+            fullRequest(ctx, (FullHttpRequest) msg);
+            return;
+        }
+        if (msg instanceof HttpRequest) {
+            streamingRequestStart(ctx, (HttpRequest) msg);
+        }
+        if (msg instanceof HttpContent) {
+            streamingRequestContent(ctx, (HttpContent) msg);
+        }
+    }
+
+    private void fullRequest(ChannelHandlerContext ctx, FullHttpRequest msg) {
+        long requestStart = requestStart(msg.method().name(), msg.uri());
+        WorkloadProfile.Route route = workloadProfile.route(msg.uri());
+        int weight = requestSampler.nextWeight();
+        if (weight > 0) {
+            requestSize(msg.content().readableBytes(), weight);
+        }
+        if (isDeferredSleep(route)) {
+            // The request is released by SimpleChannelInboundHandler once channelRead0 returns
+            msg.retain();
+            respondAfterSleep(ctx, route, weight, () -> {
                 try {
-                    Thread.sleep(sleepTime);
-                } catch (InterruptedException e) {
-                    // Ignore
+                    writeResponse(ctx, msg, route, requestStart, weight);
                 } finally {
-                    sleepEnd(sleepStart);
+                    msg.release();
                 }
+            });
+            return;
+        }
+        sleep(route, weight);
+        writeResponse(ctx, msg, route, requestStart, weight);
+    }
+
+    private boolean isDeferredSleep(WorkloadProfile.Route route) {
+        return route.isSleep() && handlerArgs.getSleepMode() != SleepMode.BLOCKING;
+    }
+
+    /**
+     * Sleep on the current thread for the next latency of the route.
+     */
+    private void sleep(WorkloadProfile.Route route, int weight) {
+        if (!route.isSleep()) {
+            return;
+        }
+        long sleepTime = route.nextLatency();
+        long sleepStart = weight > 0 ? sleepStart() : 0;
+        try {
+            sleepMicros(sleepTime);
+        } finally {
+            if (weight > 0) {
+                sleepEnd(sleepStart, weight);
             }
+        }
+    }
+
+    private static void sleepMicros(long sleepTime) {
+        try {
+            TimeUnit.MICROSECONDS.sleep(sleepTime);
+        } catch (InterruptedException e) {
+            // Ignore
+        }
+    }
 
-            if (handlerArgs.isRandomStatusCode()) {
-                int statusCode = 100 + random.nextInt(500);
-                status = HttpResponseStatus.valueOf(statusCode);
-                if (status == null) {
-                    status = new HttpResponseStatus(statusCode, "Random Status Code");
+    /**
+     * Run the given task on the event loop once the next latency of the route has elapsed. The latency elapses in a
+     * task scheduled on the event loop, or in a sleep on the offload executor.
+     */
+    private void respondAfterSleep(ChannelHandlerContext ctx, WorkloadProfile.Route route, int weight,
+                                   Runnable task) {
+        long sleepTime = route.nextLatency();
+        long sleepStart = weight > 0 ? sleepStart() : 0;
+        // Stop reading until the response is written to keep responses in order
+        ReadSuspension.suspend(ctx.channel(), ReadSuspension.SLEEP);
+        Runnable respond = () -> {
+            try {
+                if (weight > 0) {
+                    sleepEnd(sleepStart, weight);
                 }
+                task.run();
+                // Flush here as channelReadComplete has already been called
+                ctx.flush();
+            } finally {
+                ReadSuspension.resume(ctx.channel(), ReadSuspension.SLEEP);
             }
+        };
+        if (offloadExecutor != null) {
+            offloadExecutor.execute(() -> {
+                sleepMicros(sleepTime);
+                ctx.executor().execute(respond);
+            });
+        } else {
+            ctx.executor().schedule(respond, sleepTime, TimeUnit.MICROSECONDS);
+        }
+    }
+
+    private ByteBuf newPayload(ChannelHandlerContext ctx, WorkloadProfile.Route route) {
+        return responsePayload.newPayload(ctx.alloc(), route.nextPayloadSize());
+    }
+
+    /**
+     * @return The encoding of a precompressed response or {@code null} if the response should not be compressed
+     */
+    private ContentEncoding contentEncoding(HttpRequest request) {
+        if (compressedPayloads == null || !HttpMethod.GET.equals(request.method())) {
+            return null;
+        }
+        return ContentEncoding.negotiate(request.headers().get(HttpHeaderNames.ACCEPT_ENCODING));
+    }
+
+    private static void setContentEncoding(HttpResponse response, ContentEncoding encoding) {
+        response.headers().set(HttpHeaderNames.CONTENT_ENCODING, encoding.getHeaderValue());
+        response.headers().set(HttpHeaderNames.VARY, HttpHeaderNames.ACCEPT_ENCODING);
+    }
+
+    private void writeResponse(ChannelHandlerContext ctx, FullHttpRequest msg, WorkloadProfile.Route route,
+                               long requestStart, int weight) {
+        HttpResponseStatus status = HttpResponseStatus.OK;
+        try {
+            status = route.nextStatus();
 
             boolean keepAlive = HttpUtil.isKeepAlive(msg);
 
             HttpMethod method = msg.method();
+            ContentEncoding encoding = contentEncoding(msg);
             FullHttpResponse response;
-            if (HttpMethod.GET.equals(method)) {
-                response = new DefaultFullHttpResponse(HTTP_1_1, status, Unpooled.wrappedBuffer(generatePayload()));
+            if (encoding != null) {
+                int payloadSize = route.nextPayloadSize();
+                response = new DefaultFullHttpResponse(HTTP_1_1, status,
+                        compressedPayloads.newPayload(encoding, payloadSize));
+                response.headers().set(HttpHeaderNames.CONTENT_TYPE, "application/json");
+                setContentEncoding(response, encoding);
+                if (weight > 0) {
+                    compressedResponseSize(response.content().readableBytes(), weight);
+                    responseSize(compressedPayloads.uncompressedSize(payloadSize), weight);
+                }
+            } else if (HttpMethod.GET.equals(method)) {
+                response = new DefaultFullHttpResponse(HTTP_1_1, status, newPayload(ctx, route));
                 response.headers().set(HttpHeaderNames.CONTENT_TYPE, "application/json");
             } else {
-                response = new DefaultFullHttpResponse(HTTP_1_1, status, msg.content().copy());
+                // Echo the request content without copying. The request is released by SimpleChannelInboundHandler
+                // and the retained duplicate is released once the response is written.
+                response = new DefaultFullHttpResponse(HTTP_1_1, status, msg.content().retainedDuplicate());
                 String contentType = msg.headers().get(HttpHeaderNames.CONTENT_TYPE);
                 if (contentType != null) {
                     response.headers().set(HttpHeaderNames.CONTENT_TYPE, contentType);
                 }
             }
-            responseSize(response.content().readableBytes());
+            if (encoding == null && weight > 0) {
+                responseSize(response.content().readableBytes(), weight);
+            }
             response.headers().setInt(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes());
             if (!keepAlive) {
                 ctx.write(response).addListener(ChannelFutureListener.CLOSE);
@@ -115,36 +340,148 @@ public abstract class AbstractNettyHttpServerHandler<T extends NettyHttpServer>
                 ctx.write(response);
             }
         } finally {
-            requestEnd(msg.method().name(), msg.uri(), status.code(), requestStart);
-        }
-    }
-
-    private byte[] generatePayload() {
-        int payloadSize = handlerArgs.isRandomPayload() ? random.nextInt(handlerArgs.getPayloadSize())
-                : handlerArgs.getPayloadSize();
-        StringBuilder payloadBuilder = new StringBuilder();
-        payloadBuilder.append('{').append('"').append("size").append('"');
-        payloadBuilder.append(':').append('"').append(payloadSize).append('B').append('"');
-        payloadBuilder.append(',').append('"').append("payload").append('"');
-        payloadBuilder.append(':').append('"');
-
-        int limit = payloadSize - (payloadBuilder.toString().getBytes(Charset.forName("UTF-8")).length + 2);
-
-        int c = '0';
-        for (int i = 0; i < limit; i++) {
-            payloadBuilder.append((char) c);
-            if (c == '9') {
-                c = 'A' - 1;
-            } else if (c == 'Z') {
-                c = 'a' - 1;
-            } else if (c == 'z') {
-                c = '0' - 1;
+            requestEnd(msg.method().name(), msg.uri(), status.code(), requestStart, weight);
+        }
+    }
+
+    private void streamingRequestStart(ChannelHandlerContext ctx, HttpRequest msg) {
+        StreamingRequest streamingRequest = new StreamingRequest(msg.method().name(), msg.uri(),
+                HttpMethod.GET.equals(msg.method()), HttpUtil.isKeepAlive(msg), contentEncoding(msg),
+                workloadProfile.route(msg.uri()));
+        streamingRequest.requestStart = requestStart(streamingRequest.method, streamingRequest.uri);
+        streamingRequest.weight = requestSampler.nextWeight();
+        streamingRequest.status = streamingRequest.route.nextStatus();
+        ctx.channel().attr(STREAMING_REQUEST).set(streamingRequest);
+
+        // Send the response head immediately. The request content is echoed as it arrives.
+        HttpResponse response = new DefaultHttpResponse(HTTP_1_1, streamingRequest.status);
+        HttpUtil.setTransferEncodingChunked(response, true);
+        if (streamingRequest.get) {
+            response.headers().set(HttpHeaderNames.CONTENT_TYPE, "application/json");
+            if (streamingRequest.encoding != null) {
+                setContentEncoding(response, streamingRequest.encoding);
             }
-            c++;
+        } else {
+            String contentType = msg.headers().get(HttpHeaderNames.CONTENT_TYPE);
+            if (contentType != null) {
+                response.headers().set(HttpHeaderNames.CONTENT_TYPE, contentType);
+            }
+        }
+        if (streamingRequest.keepAlive) {
+            response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
         }
+        // Flush the response head so that it is not delayed by a blocking sleep
+        ctx.writeAndFlush(response);
+    }
 
-        payloadBuilder.append('"').append('}');
+    private void streamingRequestContent(ChannelHandlerContext ctx, HttpContent msg) {
+        StreamingRequest streamingRequest = ctx.channel().attr(STREAMING_REQUEST).get();
+        if (streamingRequest == null) {
+            return;
+        }
+        int size = msg.content().readableBytes();
+        streamingRequest.requestSize += size;
+        if (!streamingRequest.get && size > 0) {
+            contentWritten(streamingRequest);
+            ctx.write(new DefaultHttpContent(msg.content().retainedDuplicate()));
+            streamingRequest.responseSize += size;
+        }
+        if (msg instanceof LastHttpContent) {
+            ctx.channel().attr(STREAMING_REQUEST).set(null);
+            if (streamingRequest.weight > 0) {
+                requestSize(streamingRequest.requestSize, streamingRequest.weight);
+            }
+            if (isDeferredSleep(streamingRequest.route)) {
+                respondAfterSleep(ctx, streamingRequest.route, streamingRequest.weight,
+                        () -> streamingResponseEnd(ctx, streamingRequest));
+            } else {
+                sleep(streamingRequest.route, streamingRequest.weight);
+                streamingResponseEnd(ctx, streamingRequest);
+            }
+        }
+    }
 
-        return payloadBuilder.toString().getBytes(Charset.forName("UTF-8"));
+    private void streamingResponseEnd(ChannelHandlerContext ctx, StreamingRequest streamingRequest) {
+        try {
+            if (streamingRequest.get) {
+                ByteBuf payload;
+                if (streamingRequest.encoding != null) {
+                    int payloadSize = streamingRequest.route.nextPayloadSize();
+                    payload = compressedPayloads.newPayload(streamingRequest.encoding, payloadSize);
+                    if (streamingRequest.weight > 0) {
+                        compressedResponseSize(payload.readableBytes(), streamingRequest.weight);
+                    }
+                    streamingRequest.responseSize = compressedPayloads.uncompressedSize(payloadSize);
+                } else {
+                    payload = newPayload(ctx, streamingRequest.route);
+                    streamingRequest.responseSize = payload.readableBytes();
+                }
+                try {
+                    int length = payload.readableBytes();
+                    if (length > 0) {
+                        contentWritten(streamingRequest);
+                    }
+                    for (int offset = 0; offset < length; offset += CHUNK_SIZE) {
+                        ctx.write(new DefaultHttpContent(
+                                payload.retainedSlice(offset, Math.min(CHUNK_SIZE, length - offset))));
+                    }
+                } finally {
+                    payload.release();
+                }
+            }
+            if (streamingRequest.weight > 0) {
+                responseSize(streamingRequest.responseSize, streamingRequest.weight);
+            }
+            contentWritten(streamingRequest);
+            ChannelFuture future = ctx.write(LastHttpContent.EMPTY_LAST_CONTENT);
+            if (!streamingRequest.keepAlive) {
+                future.addListener(ChannelFutureListener.CLOSE);
+            }
+        } finally {
+            requestEnd(streamingRequest.method, streamingRequest.uri, streamingRequest.status.code(),
+                    streamingRequest.requestStart, streamingRequest.weight);
+        }
+    }
+
+    /**
+     * Record the time to first byte, if no content has been written for the streaming request yet.
+     */
+    private void contentWritten(StreamingRequest streamingRequest) {
+        if (streamingRequest.contentWritten) {
+            return;
+        }
+        streamingRequest.contentWritten = true;
+        if (streamingRequest.weight > 0) {
+            firstByte(streamingRequest.requestStart, streamingRequest.weight);
+        }
+    }
+
+    /**
+     * State of a request received in streaming mode
+     */
+    private static final class StreamingRequest {
+
+        private final String method;
+        private final String uri;
+        private final boolean get;
+        private final boolean keepAlive;
+        private final ContentEncoding encoding;
+        private final WorkloadProfile.Route route;
+        private long requestStart;
+        private int weight;
+        private HttpResponseStatus status = HttpResponseStatus.OK;
+        private int requestSize;
+        private int responseSize;
+        private boolean contentWritten;
+
+        private StreamingRequest(String method, String uri, boolean get, boolean keepAlive,
+                                 ContentEncoding encoding, WorkloadProfile.Route route) {
+            this.method = method;
+            this.uri = uri;
+            this.get = get;
+            this.keepAlive = keepAlive;
+            this.encoding = encoding;
+            this.route = route;
+        }
     }
 }
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.base;
+
+import com.github.chrishantha.netty.metrics.base.args.ServerArgs;
+import com.github.chrishantha.netty.metrics.base.backpressure.BackpressureHandler;
+import com.github.chrishantha.netty.metrics.base.backpressure.BackpressureMetrics;
+import com.github.chrishantha.netty.metrics.base.connection.ConnectionMetrics;
+import com.github.chrishantha.netty.metrics.base.connection.ConnectionMetricsHandler;
+import com.github.chrishantha.netty.metrics.base.connection.RequestCountingHandler;
+import com.github.chrishantha.netty.metrics.base.ssl.HandshakeMetrics;
+import com.github.chrishantha.netty.metrics.base.ssl.HandshakeMetricsHandler;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerAdapter;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.codec.http.HttpContentCompressor;
+import io.netty.handler.codec.http.HttpObject;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpServerExpectContinueHandler;
+import io.netty.handler.codec.http.HttpServerUpgradeHandler;
+import io.netty.handler.codec.http2.CleartextHttp2ServerUpgradeHandler;
+import io.netty.handler.codec.http2.Http2CodecUtil;
+import io.netty.handler.codec.http2.Http2MultiplexCodec;
+import io.netty.handler.codec.http2.Http2MultiplexCodecBuilder;
+import io.netty.handler.codec.http2.Http2ServerUpgradeCodec;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
+import io.netty.handler.flush.FlushConsolidationHandler;
+import io.netty.handler.ssl.ApplicationProtocolNames;
+import io.netty.handler.ssl.ApplicationProtocolNegotiationHandler;
+import io.netty.handler.ssl.SslContext;
+import io.netty.util.AsciiString;
+
+/**
+ * Initializes the pipeline of accepted channels.
+ * <p>
+ * HTTP/1.1 requests and HTTP/2 streams are handled by the same {@link NettyHttpServerHandler}. Each HTTP/2 stream is
+ * a child channel, which converts the stream frames to HTTP/1.1 objects before passing them to the handler.
+ * <p>
+ * The handler is shared by all channels. When connection metrics are enabled, a {@link ConnectionMetricsHandler} is
+ * added first to each pipeline. When SSL is enabled, a {@link HandshakeMetricsHandler} follows the SSL handler.
+ * <p>
+ * With HTTP/2 over cleartext, the HTTP/2 codec or the HTTP/1.1 handlers are added once the connection starts with the
+ * HTTP/2 preface, upgrades, or sends an HTTP/1.1 request without an upgrade.
+ * <p>
+ * Pipelined requests are passed to the handler one at a time by a {@link PipeliningHandler}, so that the responses
+ * are written in order. Reading is suspended while a channel is unwritable. When flush consolidation is enabled,
+ * flushes are consolidated before the SSL handler and the codecs. In dynamic compression mode, responses are
+ * compressed by a {@link HttpContentCompressor} in each pipeline.
+ */
+class HttpServerInitializer extends ChannelInitializer<SocketChannel> {
+
+    private static final int MAX_CONTENT_LENGTH = 1048576;
+
+    private final ServerArgs serverArgs;
+    private final NettyHttpServerHandler<?> nettyHttpServerHandler;
+    private final SslContext sslCtx;
+    private final ConnectionMetrics connectionMetrics;
+    private final HandshakeMetrics handshakeMetrics;
+    private final BackpressureMetrics backpressureMetrics;
+    private final BackpressureHandler backpressureHandler;
+    private final boolean contentCompression;
+
+    HttpServerInitializer(ServerArgs serverArgs, NettyHttpServerHandler<?> nettyHttpServerHandler,
+                          SslContext sslCtx, ConnectionMetrics connectionMetrics, HandshakeMetrics handshakeMetrics,
+                          BackpressureMetrics backpressureMetrics, boolean contentCompression) {
+        this.serverArgs = serverArgs;
+        this.nettyHttpServerHandler = nettyHttpServerHandler;
+        this.sslCtx = sslCtx;
+        this.connectionMetrics = connectionMetrics;
+        this.handshakeMetrics = handshakeMetrics;
+        this.backpressureMetrics = backpressureMetrics;
+        this.backpressureHandler = new BackpressureHandler(backpressureMetrics);
+        this.contentCompression = contentCompression;
+    }
+
+    @Override
+    public void initChannel(SocketChannel ch) {
+        ChannelPipeline p = ch.pipeline();
+        if (connectionMetrics != null) {
+            p.addLast(new ConnectionMetricsHandler(connectionMetrics));
+        }
+        backpressureMetrics.addChannel(ch);
+        if (serverArgs.getFlushConsolidation() > 0) {
+            p.addLast(new FlushConsolidationHandler(serverArgs.getFlushConsolidation(), true));
+        }
+        if (sslCtx != null) {
+            p.addLast(sslCtx.newHandler(ch.alloc()));
+            p.addLast(new HandshakeMetricsHandler(handshakeMetrics));
+            if (serverArgs.isHttp2()) {
+                p.addLast(new ApplicationProtocolNegotiationHandler(ApplicationProtocolNames.HTTP_1_1) {
+                    @Override
+                    protected void configurePipeline(ChannelHandlerContext ctx, String protocol) {
+                        if (ApplicationProtocolNames.HTTP_2.equals(protocol)) {
+                            ctx.pipeline().addLast(newHttp2Codec());
+                        } else if (ApplicationProtocolNames.HTTP_1_1.equals(protocol)) {
+                            ctx.pipeline().addLast(new HttpServerCodec());
+                            addHttpHandlers(ctx.pipeline());
+                        } else {
+                            throw new IllegalStateException("Unknown protocol: " + protocol);
+                        }
+                    }
+                });
+                return;
+            }
+        } else if (serverArgs.isHttp2()) {
+            // Supports both prior knowledge and upgrade from HTTP/1.1.
+            HttpServerCodec sourceCodec = new HttpServerCodec();
+            HttpServerUpgradeHandler upgradeHandler = new HttpServerUpgradeHandler(sourceCodec, protocol ->
+                    AsciiString.contentEquals(Http2CodecUtil.HTTP_UPGRADE_PROTOCOL_NAME, protocol) ?
+                            new Http2ServerUpgradeCodec(newHttp2Codec()) : null, MAX_CONTENT_LENGTH);
+            p.addLast(new CleartextHttp2ServerUpgradeHandler(sourceCodec, upgradeHandler,
+                    new ChannelHandlerAdapter() {
+                        @Override
+                        public void handlerAdded(ChannelHandlerContext ctx) {
+                            // Added only when the connection starts with the HTTP/2 preface
+                            ctx.pipeline().replace(this, null, newHttp2Codec());
+                        }
+                    }));
+            p.addLast(new ChannelInboundHandlerAdapter() {
+                @Override
+                public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                    if (msg instanceof HttpObject) {
+                        // The connection did not upgrade to HTTP/2
+                        addHttpHandlers(ctx.pipeline());
+                        ctx.pipeline().remove(this);
+                    }
+                    ctx.fireChannelRead(msg);
+                }
+
+                @Override
+                public void userEventTriggered(ChannelHandlerContext ctx, Object evt) {
+                    if (evt instanceof HttpServerUpgradeHandler.UpgradeEvent
+                            || evt instanceof CleartextHttp2ServerUpgradeHandler.PriorKnowledgeUpgradeEvent) {
+                        ctx.pipeline().remove(this);
+                    }
+                    ctx.fireUserEventTriggered(evt);
+                }
+            });
+            return;
+        }
+        p.addLast(new HttpServerCodec());
+        addHttpHandlers(p);
+    }
+
+    private Http2MultiplexCodec newHttp2Codec() {
+        return Http2MultiplexCodecBuilder.forServer(new ChannelInitializer<Channel>() {
+            @Override
+            protected void initChannel(Channel ch) {
+                ch.pipeline().addLast(new Http2StreamFrameToHttpObjectCodec(true));
+                addHttpHandlers(ch.pipeline());
+            }
+        }).build();
+    }
+
+    private void addHttpHandlers(ChannelPipeline p) {
+        if (connectionMetrics != null) {
+            p.addLast(RequestCountingHandler.INSTANCE);
+        }
+        p.addLast(backpressureHandler);
+        if (contentCompression) {
+            p.addLast(new HttpContentCompressor());
+        }
+        if (serverArgs.isStreaming()) {
+            p.addLast(new HttpServerExpectContinueHandler());
+        } else {
+            p.addLast("aggregator", new HttpObjectAggregator(MAX_CONTENT_LENGTH));
+        }
+        p.addLast(new PipeliningHandler());
+        p.addLast("handler", nettyHttpServerHandler);
+    }
+}
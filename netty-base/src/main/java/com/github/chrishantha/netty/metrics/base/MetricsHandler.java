@@ -0,0 +1,310 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.base;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpObject;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.stream.ChunkedInput;
+import io.netty.handler.stream.ChunkedWriteHandler;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+
+/**
+ * Serves the metrics exposition from Netty.
+ * <p>
+ * The exposition is written by a separate thread, so that collecting the metrics does not block the event loop. The
+ * writer encodes the exposition into chunks and waits while {@value #MAX_PENDING_CHUNKS} chunks are pending. The
+ * chunks are sent by a {@link ChunkedWriteHandler} only while the channel is writable, so that the memory used by a
+ * scrape stays bounded. The chunks are compressed one by one by the
+ * {@link io.netty.handler.codec.http.HttpContentCompressor} in the pipeline.
+ */
+@ChannelHandler.Sharable
+class MetricsHandler extends SimpleChannelInboundHandler<HttpObject> {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricsHandler.class);
+
+    private static final String CONTENT_TYPE_004 = "text/plain; version=0.0.4; charset=utf-8";
+
+    /**
+     * Chunk size in characters
+     */
+    private static final int CHUNK_SIZE = 8192;
+
+    private static final int MAX_PENDING_CHUNKS = 4;
+
+    private final AbstractNettyHttpServer nettyHttpServer;
+
+    private final ExecutorService executor =
+            Executors.newCachedThreadPool(new DefaultThreadFactory("metrics-exposition", true));
+
+    MetricsHandler(AbstractNettyHttpServer nettyHttpServer) {
+        this.nettyHttpServer = nettyHttpServer;
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, HttpObject msg) {
+        // Request content is ignored
+        if (!(msg instanceof HttpRequest)) {
+            return;
+        }
+        boolean keepAlive = HttpUtil.isKeepAlive((HttpRequest) msg);
+        HttpResponse response = new DefaultHttpResponse(HTTP_1_1, HttpResponseStatus.OK);
+        response.headers().set(HttpHeaderNames.CONTENT_TYPE, CONTENT_TYPE_004);
+        HttpUtil.setTransferEncodingChunked(response, true);
+        if (keepAlive) {
+            response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+        }
+        ctx.write(response);
+        MetricsExposition exposition = new MetricsExposition(ctx);
+        ctx.writeAndFlush(exposition).addListener((ChannelFutureListener) future -> {
+            if (!future.isSuccess()) {
+                logger.error("Error writing metrics", future.cause());
+                future.channel().close();
+            } else if (!keepAlive) {
+                future.channel().close();
+            }
+        });
+        executor.execute(exposition::produce);
+    }
+
+    /**
+     * Chunks of the exposition, which are written by the exposition thread and read by the {@link ChunkedWriteHandler}
+     * on the event loop.
+     */
+    private final class MetricsExposition implements ChunkedInput<HttpContent> {
+
+        private final ByteBufAllocator alloc;
+
+        private final ChunkedWriteHandler chunkedWriteHandler;
+
+        private final BlockingQueue<ByteBuf> chunks = new ArrayBlockingQueue<>(MAX_PENDING_CHUNKS);
+
+        private volatile boolean done;
+
+        private volatile Exception failure;
+
+        private volatile boolean closed;
+
+        private boolean lastChunkRead;
+
+        private long progress;
+
+        private MetricsExposition(ChannelHandlerContext ctx) {
+            this.alloc = ctx.alloc();
+            this.chunkedWriteHandler = ctx.pipeline().get(ChunkedWriteHandler.class);
+        }
+
+        /**
+         * Write the exposition. Called by the exposition thread.
+         */
+        private void produce() {
+            try (ChunkWriter writer = new ChunkWriter(this)) {
+                nettyHttpServer.writeMetrics(writer);
+            } catch (IOException | RuntimeException e) {
+                failure = e;
+            } finally {
+                done = true;
+                chunkedWriteHandler.resumeTransfer();
+            }
+        }
+
+        private void put(ByteBuf chunk) throws IOException {
+            try {
+                while (!chunks.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+                    if (closed) {
+                        chunk.release();
+                        throw new IOException("Metrics response is closed");
+                    }
+                }
+            } catch (InterruptedException e) {
+                chunk.release();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+            if (closed) {
+                releaseChunks();
+                throw new IOException("Metrics response is closed");
+            }
+            chunkedWriteHandler.resumeTransfer();
+        }
+
+        private void releaseChunks() {
+            ByteBuf chunk;
+            while ((chunk = chunks.poll()) != null) {
+                chunk.release();
+            }
+        }
+
+        @Override
+        public boolean isEndOfInput() {
+            return lastChunkRead;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            releaseChunks();
+        }
+
+        @Deprecated
+        @Override
+        public HttpContent readChunk(ChannelHandlerContext ctx) throws Exception {
+            return readChunk(ctx.alloc());
+        }
+
+        @Override
+        public HttpContent readChunk(ByteBufAllocator allocator) throws Exception {
+            if (failure != null) {
+                throw failure;
+            }
+            // Read the flag first, as the last chunk is added before the flag is set
+            boolean finished = done;
+            ByteBuf chunk = chunks.poll();
+            if (chunk != null) {
+                progress += chunk.readableBytes();
+                return new DefaultHttpContent(chunk);
+            }
+            if (finished && !lastChunkRead) {
+                lastChunkRead = true;
+                return LastHttpContent.EMPTY_LAST_CONTENT;
+            }
+            // Wait until the exposition thread resumes the transfer
+            return null;
+        }
+
+        @Override
+        public long length() {
+            return -1;
+        }
+
+        @Override
+        public long progress() {
+            return progress;
+        }
+    }
+
+    /**
+     * Encodes the characters of the exposition in UTF-8 and adds a chunk whenever the character buffer is full.
+     * Surrogate pairs split between two writes or two chunks are kept together by the encoder.
+     */
+    private static final class ChunkWriter extends Writer {
+
+        private final MetricsExposition exposition;
+
+        private final CharBuffer chars = CharBuffer.allocate(CHUNK_SIZE);
+
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        private final ByteBuffer bytes = ByteBuffer.allocate((int) (CHUNK_SIZE * encoder.maxBytesPerChar()) + 8);
+
+        private ChunkWriter(MetricsExposition exposition) {
+            this.exposition = exposition;
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            if (!chars.hasRemaining()) {
+                addChunk(false);
+            }
+            chars.put((char) c);
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            int end = off + len;
+            while (off < end) {
+                if (!chars.hasRemaining()) {
+                    addChunk(false);
+                }
+                int n = Math.min(chars.remaining(), end - off);
+                chars.put(str, off, off + n);
+                off += n;
+            }
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            int end = off + len;
+            while (off < end) {
+                if (!chars.hasRemaining()) {
+                    addChunk(false);
+                }
+                int n = Math.min(chars.remaining(), end - off);
+                chars.put(cbuf, off, n);
+                off += n;
+            }
+        }
+
+        private void addChunk(boolean endOfInput) throws IOException {
+            chars.flip();
+            bytes.clear();
+            encoder.encode(chars, bytes, endOfInput);
+            if (endOfInput) {
+                encoder.flush(bytes);
+            }
+            // A high surrogate at the end is kept for the next chunk
+            chars.compact();
+            bytes.flip();
+            if (bytes.hasRemaining()) {
+                exposition.put(exposition.alloc.buffer(bytes.remaining()).writeBytes(bytes));
+            }
+        }
+
+        @Override
+        public void flush() {
+            // Chunks are added when they are full
+        }
+
+        @Override
+        public void close() throws IOException {
+            addChunk(true);
+        }
+    }
+}
@@ -16,10 +16,19 @@
 package com.github.chrishantha.netty.metrics.base;
 
 import com.github.chrishantha.netty.metrics.base.args.HandlerArgs;
+import com.github.chrishantha.netty.metrics.base.sampling.RequestSampler;
 import io.netty.channel.ChannelInboundHandler;
 
+/**
+ * Netty HTTP Server Handler. The handler is loaded and initialized once and it is shared by all channels.
+ */
 public interface NettyHttpServerHandler<T extends NettyHttpServer> extends ChannelInboundHandler {
 
     void init(HandlerArgs handlerArgs, T httpServer);
 
+    /**
+     * @return Sampler of the requests recorded in the latency and size distributions
+     */
+    RequestSampler getRequestSampler();
+
 }
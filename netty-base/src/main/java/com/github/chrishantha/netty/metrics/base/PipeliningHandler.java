@@ -0,0 +1,105 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.base;
+
+import com.github.chrishantha.netty.metrics.base.backpressure.ReadSuspension;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.ReferenceCountUtil;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * Passes pipelined HTTP/1.1 requests to the server handler one at a time.
+ * <p>
+ * Suspending reads does not stop the codec from decoding requests, which were already read. When the response is
+ * written after a scheduled sleep, the response of a later request could be written first. The requests received
+ * while a response is pending are queued and reading is suspended until the last part of the response is written.
+ * <p>
+ * In streaming mode, the content of the current request is passed on while its response is being written. The
+ * content following a queued request is queued with it.
+ */
+final class PipeliningHandler extends ChannelDuplexHandler {
+
+    private final Queue<Object> queue = new ArrayDeque<>();
+
+    private boolean responsePending;
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        if (!queue.isEmpty() || responsePending && msg instanceof HttpRequest) {
+            if (queue.isEmpty()) {
+                ReadSuspension.suspend(ctx.channel(), ReadSuspension.PIPELINING);
+            }
+            queue.add(msg);
+            return;
+        }
+        read(ctx, msg);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+        if (msg instanceof LastHttpContent) {
+            promise = promise.unvoid();
+            promise.addListener((ChannelFutureListener) future -> responseWritten(ctx));
+        }
+        ctx.write(msg, promise);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        releaseQueue();
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) {
+        releaseQueue();
+    }
+
+    private void read(ChannelHandlerContext ctx, Object msg) {
+        if (msg instanceof HttpRequest) {
+            responsePending = true;
+        }
+        ctx.fireChannelRead(msg);
+    }
+
+    private void responseWritten(ChannelHandlerContext ctx) {
+        responsePending = false;
+        if (queue.isEmpty() || !ctx.channel().isActive()) {
+            return;
+        }
+        while (!queue.isEmpty() && !(responsePending && queue.peek() instanceof HttpRequest)) {
+            read(ctx, queue.poll());
+        }
+        ctx.fireChannelReadComplete();
+        if (queue.isEmpty()) {
+            ReadSuspension.resume(ctx.channel(), ReadSuspension.PIPELINING);
+        }
+    }
+
+    private void releaseQueue() {
+        Object msg;
+        while ((msg = queue.poll()) != null) {
+            ReferenceCountUtil.release(msg);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.base;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+
+/**
+ * Pre-rendered JSON payload served for GET requests.
+ * <p>
+ * The payload is rendered once at the maximum payload size into a read-only direct buffer. Smaller payloads are
+ * served as slices of the same buffer with a JSON header for the requested size.
+ */
+public final class ResponsePayload {
+
+    private static final String HEADER_START = "{\"size\":\"";
+
+    private static final String HEADER_END = "B\",\"payload\":\"";
+
+    private static final String TRAILER = "\"}";
+
+    private static ResponsePayload instance;
+
+    private final int maxSize;
+
+    private final int headerLength;
+
+    private final ByteBuf payload;
+
+    private ResponsePayload(int maxSize) {
+        this.maxSize = maxSize;
+        this.headerLength = headerLength(maxSize);
+        int limit = fillerLength(maxSize);
+        ByteBuf buffer = Unpooled.directBuffer(headerLength + limit + TRAILER.length());
+        writeHeader(buffer, maxSize);
+        int c = '0';
+        for (int i = 0; i < limit; i++) {
+            buffer.writeByte(c);
+            if (c == '9') {
+                c = 'A' - 1;
+            } else if (c == 'Z') {
+                c = 'a' - 1;
+            } else if (c == 'z') {
+                c = '0' - 1;
+            }
+            c++;
+        }
+        ByteBufUtil.writeAscii(buffer, TRAILER);
+        this.payload = Unpooled.unreleasableBuffer(buffer.asReadOnly());
+    }
+
+    /**
+     * Get the payload for the given maximum size. The payload is rendered only when the maximum size changes.
+     *
+     * @param maxSize Maximum payload size in bytes
+     * @return Response payload
+     */
+    public static synchronized ResponsePayload getInstance(int maxSize) {
+        if (instance == null || instance.maxSize != maxSize) {
+            instance = new ResponsePayload(maxSize);
+        }
+        return instance;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Create a payload buffer of the given size. The caller is responsible for releasing the returned buffer.
+     *
+     * @param alloc Allocator used for the JSON header when the size is smaller than the maximum size
+     * @param size  Payload size in bytes. Should not be larger than the maximum size.
+     * @return Payload buffer
+     */
+    public ByteBuf newPayload(ByteBufAllocator alloc, int size) {
+        if (size >= maxSize) {
+            return payload.retainedDuplicate();
+        }
+        int fillerLength = Math.min(fillerLength(size), payload.readableBytes() - headerLength - TRAILER.length());
+        ByteBuf header = alloc.buffer(headerLength(size));
+        writeHeader(header, size);
+        return alloc.compositeBuffer(3).addComponents(true, header,
+                payload.retainedSlice(headerLength, fillerLength),
+                payload.retainedSlice(payload.readableBytes() - TRAILER.length(), TRAILER.length()));
+    }
+
+    private static int headerLength(int size) {
+        return HEADER_START.length() + Integer.toString(size).length() + HEADER_END.length();
+    }
+
+    private static int fillerLength(int size) {
+        return Math.max(0, size - (headerLength(size) + TRAILER.length()));
+    }
+
+    private static void writeHeader(ByteBuf buffer, int size) {
+        ByteBufUtil.writeAscii(buffer, HEADER_START);
+        ByteBufUtil.writeAscii(buffer, Integer.toString(size));
+        ByteBufUtil.writeAscii(buffer, HEADER_END);
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.base.allocator;
+
+import io.netty.buffer.ByteBufAllocatorMetric;
+import io.netty.buffer.PoolArenaMetric;
+import io.netty.buffer.PoolChunkListMetric;
+import io.netty.buffer.PoolChunkMetric;
+import io.netty.buffer.PooledByteBufAllocatorMetric;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reads the metrics of a buffer allocator.
+ * <p>
+ * Used memory is available for all allocators. Arena, chunk and thread cache metrics are available only for the
+ * pooled allocator and are zero otherwise. Chunk metrics are calculated by walking the chunk lists of each arena, which
+ * locks the arena. The values should only be read when the metrics are collected.
+ */
+public final class AllocatorMetrics {
+
+    /**
+     * Memory type, used as a label
+     */
+    public enum MemoryType {
+        DIRECT, HEAP;
+
+        @Override
+        public String toString() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final ByteBufAllocatorMetric metric;
+
+    private final PooledByteBufAllocatorMetric pooledMetric;
+
+    public AllocatorMetrics(ByteBufAllocatorMetric metric) {
+        this.metric = metric;
+        this.pooledMetric = metric instanceof PooledByteBufAllocatorMetric ?
+                (PooledByteBufAllocatorMetric) metric : null;
+    }
+
+    /**
+     * @return Bytes used by the allocator. Includes the free memory of pooled chunks.
+     */
+    public long getUsedMemory(MemoryType type) {
+        return type == MemoryType.DIRECT ? metric.usedDirectMemory() : metric.usedHeapMemory();
+    }
+
+    public int getArenas(MemoryType type) {
+        return arenas(type).size();
+    }
+
+    public long getActiveAllocations(MemoryType type) {
+        long activeAllocations = 0;
+        for (PoolArenaMetric arena : arenas(type)) {
+            activeAllocations += arena.numActiveAllocations();
+        }
+        return activeAllocations;
+    }
+
+    public int getChunks(MemoryType type) {
+        int chunks = 0;
+        for (PoolArenaMetric arena : arenas(type)) {
+            for (PoolChunkListMetric chunkList : arena.chunkLists()) {
+                for (PoolChunkMetric ignored : chunkList) {
+                    chunks++;
+                }
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * @return Fraction of the chunk memory in use. Zero when there are no chunks.
+     */
+    public double getChunkUsage(MemoryType type) {
+        long size = 0;
+        long freeBytes = 0;
+        for (PoolArenaMetric arena : arenas(type)) {
+            for (PoolChunkListMetric chunkList : arena.chunkLists()) {
+                for (PoolChunkMetric chunk : chunkList) {
+                    size += chunk.chunkSize();
+                    freeBytes += chunk.freeBytes();
+                }
+            }
+        }
+        return size == 0 ? 0 : (double) (size - freeBytes) / size;
+    }
+
+    public int getThreadLocalCaches() {
+        return pooledMetric != null ? pooledMetric.numThreadLocalCaches() : 0;
+    }
+
+    public int getChunkSize() {
+        return pooledMetric != null ? pooledMetric.chunkSize() : 0;
+    }
+
+    private List<PoolArenaMetric> arenas(MemoryType type) {
+        if (pooledMetric == null) {
+            return Collections.emptyList();
+        }
+        return type == MemoryType.DIRECT ? pooledMetric.directArenas() : pooledMetric.heapArenas();
+    }
+}
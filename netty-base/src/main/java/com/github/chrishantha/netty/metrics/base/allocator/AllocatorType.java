@@ -0,0 +1,83 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.base.allocator;
+
+import com.beust.jcommander.IStringConverter;
+import com.beust.jcommander.ParameterException;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+
+import java.util.Locale;
+
+/**
+ * Buffer allocators used by the server channels.
+ */
+public enum AllocatorType {
+
+    /**
+     * Pooled allocator preferring direct buffers. Same as the Netty default on most platforms.
+     */
+    POOLED_DIRECT {
+        @Override
+        public ByteBufAllocator newAllocator() {
+            return new PooledByteBufAllocator(true);
+        }
+    },
+
+    /**
+     * Pooled allocator preferring heap buffers.
+     */
+    POOLED_HEAP {
+        @Override
+        public ByteBufAllocator newAllocator() {
+            return new PooledByteBufAllocator(false);
+        }
+    },
+
+    /**
+     * Allocates a new buffer for each request. Direct buffers are preferred when the platform supports them.
+     */
+    UNPOOLED {
+        @Override
+        public ByteBufAllocator newAllocator() {
+            return UnpooledByteBufAllocator.DEFAULT;
+        }
+    };
+
+    public abstract ByteBufAllocator newAllocator();
+
+    @Override
+    public String toString() {
+        return name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+
+    /**
+     * Converts option values like {@code pooled-direct}.
+     */
+    public static class Converter implements IStringConverter<AllocatorType> {
+
+        @Override
+        public AllocatorType convert(String value) {
+            for (AllocatorType allocatorType : values()) {
+                if (allocatorType.toString().equalsIgnoreCase(value)) {
+                    return allocatorType;
+                }
+            }
+            throw new ParameterException("Invalid allocator: " + value);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.base.args;
+
+/**
+ * How GET responses are compressed when the client accepts gzip or deflate
+ */
+public enum CompressionMode {
+
+    /**
+     * Responses are not compressed.
+     */
+    NONE,
+
+    /**
+     * Serve compressed variants of the payload, which are compressed once at startup.
+     */
+    PRECOMPRESSED,
+
+    /**
+     * Compress each response with {@link io.netty.handler.codec.http.HttpContentCompressor}.
+     */
+    DYNAMIC
+}
@@ -16,6 +16,7 @@
 package com.github.chrishantha.netty.metrics.base.args;
 
 import com.beust.jcommander.Parameter;
+import com.github.chrishantha.netty.metrics.base.sampling.RequestSampler;
 
 public class HandlerArgs {
 
@@ -26,6 +27,14 @@ public class HandlerArgs {
     @Parameter(names = "--sleep-time", description = "Sleep Time in milliseconds")
     private int sleepTime = 0;
 
+    @Parameter(names = "--sleep-mode",
+            description = "How to sleep. Scheduled and offload modes do not block the event loop")
+    private SleepMode sleepMode = SleepMode.BLOCKING;
+
+    @Parameter(names = "--offload-threads",
+            description = "Threads running the sleeps in offload sleep mode. Sets how many sleeps can run at once")
+    private int offloadThreads = 200;
+
     @Parameter(names = "--random-payload",
             description = "Generate random payloads. Maximum value is specified using --payload-size.", arity = 0)
     private boolean randomPayload = false;
@@ -37,6 +46,21 @@ public class HandlerArgs {
             description = "Return random HTTP status codes", arity = 0)
     private boolean randomStatusCode = false;
 
+    @Parameter(names = "--compression",
+            description = "Compression of GET responses for clients accepting gzip or deflate. Precompressed mode"
+                    + " serves payloads compressed at startup")
+    private CompressionMode compression = CompressionMode.NONE;
+
+    @Parameter(names = "--sample-rate",
+            description = "Record latency and size distributions for 1 in N requests. Request counters are always"
+                    + " updated", validateValueWith = RequestSampler.Validator.class)
+    private int sampleRate = 1;
+
+    @Parameter(names = "--workload-profile",
+            description = "Properties file with the latency, payload size and status code distributions by route."
+                    + " The sleep, payload and status code options define the default route")
+    private String workloadProfile;
+
     public boolean isRandomSleep() {
         return randomSleep;
     }
@@ -53,6 +77,22 @@ public class HandlerArgs {
         this.sleepTime = sleepTime;
     }
 
+    public SleepMode getSleepMode() {
+        return sleepMode;
+    }
+
+    public void setSleepMode(SleepMode sleepMode) {
+        this.sleepMode = sleepMode;
+    }
+
+    public int getOffloadThreads() {
+        return offloadThreads;
+    }
+
+    public void setOffloadThreads(int offloadThreads) {
+        this.offloadThreads = offloadThreads;
+    }
+
     public boolean isRandomPayload() {
         return randomPayload;
     }
@@ -76,4 +116,28 @@ public class HandlerArgs {
     public void setRandomStatusCode(boolean randomStatusCode) {
         this.randomStatusCode = randomStatusCode;
     }
+
+    public CompressionMode getCompression() {
+        return compression;
+    }
+
+    public void setCompression(CompressionMode compression) {
+        this.compression = compression;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(int sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    public String getWorkloadProfile() {
+        return workloadProfile;
+    }
+
+    public void setWorkloadProfile(String workloadProfile) {
+        this.workloadProfile = workloadProfile;
+    }
 }
@@ -16,6 +16,13 @@
 package com.github.chrishantha.netty.metrics.base.args;
 
 import com.beust.jcommander.Parameter;
+import com.github.chrishantha.netty.metrics.base.allocator.AllocatorType;
+import com.github.chrishantha.netty.metrics.base.transport.Transport;
+import io.netty.channel.epoll.EpollMode;
+import io.netty.handler.ssl.SslProvider;
+
+import java.util.ArrayList;
+import java.util.List;
 
 public class ServerArgs {
 
@@ -28,6 +35,11 @@ public class ServerArgs {
     @Parameter(names = "--metrics-port", description = "Metrics Port")
     private int metricsPort = 9797;
 
+    @Parameter(names = "--netty-metrics-server",
+            description = "Serve metrics from Netty using the server event loops instead of the Prometheus HTTPServer",
+            arity = 0)
+    private boolean nettyMetricsServer = false;
+
     @Parameter(names = "--boss-threads", description = "Boss Threads")
     private int bossThreads = Runtime.getRuntime().availableProcessors();
 
@@ -37,6 +49,95 @@ public class ServerArgs {
     @Parameter(names = "--enable-ssl", description = "Enable SSL")
     private boolean enableSSL = false;
 
+    @Parameter(names = "--ssl-provider",
+            description = "SSL provider. OpenSSL requires netty-tcnative and falls back to JDK if not available")
+    private SslProvider sslProvider = SslProvider.JDK;
+
+    @Parameter(names = "--ssl-certificate",
+            description = "PEM certificate chain file. A self-signed certificate is generated and saved to the file if"
+                    + " it does not exist. Must be used with --ssl-key")
+    private String sslCertificate;
+
+    @Parameter(names = "--ssl-key",
+            description = "PKCS#8 private key file in PEM format. Generated with the self-signed certificate if it does"
+                    + " not exist")
+    private String sslKey;
+
+    @Parameter(names = "--ssl-key-password", description = "Password of the private key, if encrypted",
+            password = true)
+    private String sslKeyPassword;
+
+    @Parameter(names = "--ssl-ciphers", description = "Comma separated cipher suites. Defaults to the provider"
+            + " defaults or the HTTP/2 cipher suites")
+    private List<String> sslCiphers = new ArrayList<>();
+
+    @Parameter(names = "--ssl-protocols", description = "Comma separated TLS protocols. Example: TLSv1.2,TLSv1.3")
+    private List<String> sslProtocols = new ArrayList<>();
+
+    @Parameter(names = "--ssl-session-cache-size",
+            description = "Maximum number of cached SSL sessions. Zero uses the provider default")
+    private long sslSessionCacheSize = 0;
+
+    @Parameter(names = "--ssl-session-timeout",
+            description = "Timeout in seconds of cached SSL sessions. Zero uses the provider default")
+    private long sslSessionTimeout = 0;
+
+    @Parameter(names = "--ssl-session-tickets",
+            description = "Enable TLS session tickets. The JDK provider supports session tickets on Java 13 and later",
+            arity = 1)
+    private boolean sslSessionTickets = true;
+
+    @Parameter(names = "--http2",
+            description = "Enable HTTP/2. Uses ALPN when SSL is enabled. Otherwise supports h2c with prior knowledge"
+                    + " and upgrade", arity = 0)
+    private boolean http2 = false;
+
+    @Parameter(names = "--streaming",
+            description = "Handle request content as it arrives and stream chunked responses, without aggregating"
+                    + " requests", arity = 0)
+    private boolean streaming = false;
+
+    @Parameter(names = "--transport", description = "Transport. Native transports fall back to NIO if not available")
+    private Transport transport = Transport.NIO;
+
+    @Parameter(names = "--reuse-port",
+            description = "Enable SO_REUSEPORT and bind one listener per boss thread. Requires epoll transport",
+            arity = 0)
+    private boolean reusePort = false;
+
+    @Parameter(names = "--tcp-fastopen",
+            description = "TCP_FASTOPEN queue length. Zero disables TCP Fast Open. Requires epoll transport")
+    private int tcpFastOpen = 0;
+
+    @Parameter(names = "--epoll-mode", description = "Epoll mode. Requires epoll transport")
+    private EpollMode epollMode = EpollMode.EDGE_TRIGGERED;
+
+    @Parameter(names = "--event-loop-probe-interval",
+            description = "Interval in milliseconds between event loop health probes. Zero disables the probes")
+    private int eventLoopProbeInterval = 1000;
+
+    @Parameter(names = "--connection-metrics",
+            description = "Record connection metrics: active connections, accepted connections, connection lifetime,"
+                    + " requests per connection and bytes read and written", arity = 0)
+    private boolean connectionMetrics = false;
+
+    @Parameter(names = "--allocator", description = "Buffer allocator. One of pooled-direct, pooled-heap and unpooled",
+            converter = AllocatorType.Converter.class)
+    private AllocatorType allocator = AllocatorType.POOLED_DIRECT;
+
+    @Parameter(names = "--write-buffer-low-water-mark",
+            description = "Channels become writable again when the outbound buffer drains below this many bytes")
+    private int writeBufferLowWaterMark = 32 * 1024;
+
+    @Parameter(names = "--write-buffer-high-water-mark",
+            description = "Channels become unwritable and stop reading when the outbound buffer exceeds this many"
+                    + " bytes")
+    private int writeBufferHighWaterMark = 64 * 1024;
+
+    @Parameter(names = "--flush-consolidation",
+            description = "Number of flushes consolidated into one while reading. Zero disables flush consolidation")
+    private int flushConsolidation = 0;
+
     public boolean isHelp() {
         return help;
     }
@@ -61,6 +162,14 @@ public class ServerArgs {
         this.metricsPort = metricsPort;
     }
 
+    public boolean isNettyMetricsServer() {
+        return nettyMetricsServer;
+    }
+
+    public void setNettyMetricsServer(boolean nettyMetricsServer) {
+        this.nettyMetricsServer = nettyMetricsServer;
+    }
+
     public int getBossThreads() {
         return bossThreads;
     }
@@ -84,4 +193,172 @@ public class ServerArgs {
     public void setEnableSSL(boolean enableSSL) {
         this.enableSSL = enableSSL;
     }
+
+    public SslProvider getSslProvider() {
+        return sslProvider;
+    }
+
+    public void setSslProvider(SslProvider sslProvider) {
+        this.sslProvider = sslProvider;
+    }
+
+    public String getSslCertificate() {
+        return sslCertificate;
+    }
+
+    public void setSslCertificate(String sslCertificate) {
+        this.sslCertificate = sslCertificate;
+    }
+
+    public String getSslKey() {
+        return sslKey;
+    }
+
+    public void setSslKey(String sslKey) {
+        this.sslKey = sslKey;
+    }
+
+    public String getSslKeyPassword() {
+        return sslKeyPassword;
+    }
+
+    public void setSslKeyPassword(String sslKeyPassword) {
+        this.sslKeyPassword = sslKeyPassword;
+    }
+
+    public List<String> getSslCiphers() {
+        return sslCiphers;
+    }
+
+    public void setSslCiphers(List<String> sslCiphers) {
+        this.sslCiphers = sslCiphers;
+    }
+
+    public List<String> getSslProtocols() {
+        return sslProtocols;
+    }
+
+    public void setSslProtocols(List<String> sslProtocols) {
+        this.sslProtocols = sslProtocols;
+    }
+
+    public long getSslSessionCacheSize() {
+        return sslSessionCacheSize;
+    }
+
+    public void setSslSessionCacheSize(long sslSessionCacheSize) {
+        this.sslSessionCacheSize = sslSessionCacheSize;
+    }
+
+    public long getSslSessionTimeout() {
+        return sslSessionTimeout;
+    }
+
+    public void setSslSessionTimeout(long sslSessionTimeout) {
+        this.sslSessionTimeout = sslSessionTimeout;
+    }
+
+    public boolean isSslSessionTickets() {
+        return sslSessionTickets;
+    }
+
+    public void setSslSessionTickets(boolean sslSessionTickets) {
+        this.sslSessionTickets = sslSessionTickets;
+    }
+
+    public boolean isHttp2() {
+        return http2;
+    }
+
+    public void setHttp2(boolean http2) {
+        this.http2 = http2;
+    }
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    public Transport getTransport() {
+        return transport;
+    }
+
+    public void setTransport(Transport transport) {
+        this.transport = transport;
+    }
+
+    public boolean isReusePort() {
+        return reusePort;
+    }
+
+    public void setReusePort(boolean reusePort) {
+        this.reusePort = reusePort;
+    }
+
+    public int getTcpFastOpen() {
+        return tcpFastOpen;
+    }
+
+    public void setTcpFastOpen(int tcpFastOpen) {
+        this.tcpFastOpen = tcpFastOpen;
+    }
+
+    public EpollMode getEpollMode() {
+        return epollMode;
+    }
+
+    public void setEpollMode(EpollMode epollMode) {
+        this.epollMode = epollMode;
+    }
+
+    public int getEventLoopProbeInterval() {
+        return eventLoopProbeInterval;
+    }
+
+    public void setEventLoopProbeInterval(int eventLoopProbeInterval) {
+        this.eventLoopProbeInterval = eventLoopProbeInterval;
+    }
+
+    public boolean isConnectionMetrics() {
+        return connectionMetrics;
+    }
+
+    public void setConnectionMetrics(boolean connectionMetrics) {
+        this.connectionMetrics = connectionMetrics;
+    }
+
+    public AllocatorType getAllocator() {
+        return allocator;
+    }
+
+    public void setAllocator(AllocatorType allocator) {
+        this.allocator = allocator;
+    }
+
+    public int getWriteBufferLowWaterMark() {
+        return writeBufferLowWaterMark;
+    }
+
+    public void setWriteBufferLowWaterMark(int writeBufferLowWaterMark) {
+        this.writeBufferLowWaterMark = writeBufferLowWaterMark;
+    }
+
+    public int getWriteBufferHighWaterMark() {
+        return writeBufferHighWaterMark;
+    }
+
+    public void setWriteBufferHighWaterMark(int writeBufferHighWaterMark) {
+        this.writeBufferHighWaterMark = writeBufferHighWaterMark;
+    }
+
+    public int getFlushConsolidation() {
+        return flushConsolidation;
+    }
+
+    public void setFlushConsolidation(int flushConsolidation) {
+        this.flushConsolidation = flushConsolidation;
+    }
 }
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.base.args;
+
+/**
+ * How the handler simulates latency specified by --sleep-time
+ */
+public enum SleepMode {
+
+    /**
+     * Sleep on the event loop thread. Blocks all other channels handled by the same event loop.
+     */
+    BLOCKING,
+
+    /**
+     * Write the response from a task scheduled on the channel's event loop.
+     */
+    SCHEDULED,
+
+    /**
+     * Sleep on a separate thread pool, which is blocked instead of the event loop, and write the response from the
+     * channel's event loop. Channels are not bound to the threads of the pool, so up to --offload-threads sleeps run
+     * at once, regardless of the number of event loops.
+     */
+    OFFLOAD
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.base.backpressure;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.util.AttributeKey;
+
+/**
+ * Stops reading from a channel while it is unwritable.
+ * <p>
+ * A client, which does not read the responses fast enough, makes the outbound buffer grow above the high water mark.
+ * Reading is suspended until the buffer drains below the low water mark, so that no new requests are processed and the
+ * outbound buffer stays bounded. Pipelined requests, which were already read, are still processed.
+ */
+@ChannelHandler.Sharable
+public final class BackpressureHandler extends ChannelInboundHandlerAdapter {
+
+    private static final AttributeKey<Long> UNWRITABLE_SINCE =
+            AttributeKey.valueOf(BackpressureHandler.class, "unwritableSince");
+
+    private final BackpressureMetrics backpressureMetrics;
+
+    public BackpressureHandler(BackpressureMetrics backpressureMetrics) {
+        this.backpressureMetrics = backpressureMetrics;
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        Channel channel = ctx.channel();
+        if (!channel.isWritable()) {
+            if (channel.attr(UNWRITABLE_SINCE).setIfAbsent(System.nanoTime()) == null) {
+                backpressureMetrics.unwritable();
+                ReadSuspension.suspend(channel, ReadSuspension.UNWRITABLE);
+            }
+        } else {
+            writable(channel);
+            ReadSuspension.resume(channel, ReadSuspension.UNWRITABLE);
+        }
+        super.channelWritabilityChanged(ctx);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        writable(ctx.channel());
+        super.channelInactive(ctx);
+    }
+
+    private void writable(Channel channel) {
+        Long unwritableSince = channel.attr(UNWRITABLE_SINCE).getAndSet(null);
+        if (unwritableSince != null) {
+            backpressureMetrics.writable(System.nanoTime() - unwritableSince);
+        }
+    }
+}
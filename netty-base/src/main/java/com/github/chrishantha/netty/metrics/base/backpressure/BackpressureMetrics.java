@@ -0,0 +1,90 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.base.backpressure;
+
+import com.github.chrishantha.netty.metrics.base.striped.StripedCounter;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.util.concurrent.GlobalEventExecutor;
+
+/**
+ * Metrics of write backpressure.
+ * <p>
+ * Unwritable periods are recorded by {@link BackpressureHandler}. The pending outbound bytes are summed over the open
+ * connections when the metrics are collected.
+ */
+public final class BackpressureMetrics {
+
+    private final ChannelGroup channels = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+
+    private final StripedCounter unwritableChannels = new StripedCounter();
+    private final StripedCounter unwritableEvents = new StripedCounter();
+    private final StripedCounter unwritableNanos = new StripedCounter();
+
+    /**
+     * Track the pending outbound bytes of a connection. The channel is removed when it is closed.
+     */
+    public void addChannel(Channel channel) {
+        channels.add(channel);
+    }
+
+    void unwritable() {
+        unwritableChannels.increment();
+        unwritableEvents.increment();
+    }
+
+    void writable(long unwritableNanos) {
+        unwritableChannels.decrement();
+        this.unwritableNanos.add(unwritableNanos);
+    }
+
+    /**
+     * @return Number of channels, which are currently unwritable
+     */
+    public long getUnwritableChannels() {
+        return unwritableChannels.sum();
+    }
+
+    /**
+     * @return Number of times a channel became unwritable
+     */
+    public long getUnwritableEvents() {
+        return unwritableEvents.sum();
+    }
+
+    /**
+     * @return Total time channels were unwritable in nanoseconds, excluding the current unwritable periods
+     */
+    public long getUnwritableNanos() {
+        return unwritableNanos.sum();
+    }
+
+    /**
+     * @return Bytes waiting in the outbound buffers of all connections
+     */
+    public long getPendingOutboundBytes() {
+        long pendingBytes = 0;
+        for (Channel channel : channels) {
+            ChannelOutboundBuffer outboundBuffer = channel.unsafe().outboundBuffer();
+            if (outboundBuffer != null) {
+                pendingBytes += outboundBuffer.totalPendingWriteBytes();
+            }
+        }
+        return pendingBytes;
+    }
+}
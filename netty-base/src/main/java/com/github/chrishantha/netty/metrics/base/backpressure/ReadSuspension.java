@@ -0,0 +1,87 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.base.backpressure;
+
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Suspends reading from a channel for one or more reasons.
+ * <p>
+ * Auto read is disabled while any reason is active, so that a handler resuming reads for one reason does not
+ * override another. For example, reading must not resume when a sleep ends while the channel is still unwritable.
+ */
+public final class ReadSuspension {
+
+    /**
+     * Waiting for a scheduled sleep to write the response
+     */
+    public static final int SLEEP = 1;
+
+    /**
+     * The outbound buffer of the channel is above the high water mark
+     */
+    public static final int UNWRITABLE = 1 << 1;
+
+    /**
+     * Pipelined requests are queued until the pending response is written
+     */
+    public static final int PIPELINING = 1 << 2;
+
+    private static final AttributeKey<AtomicInteger> REASONS =
+            AttributeKey.valueOf(ReadSuspension.class, "reasons");
+
+    private ReadSuspension() {
+    }
+
+    public static void suspend(Channel channel, int reason) {
+        AtomicInteger reasons = reasons(channel);
+        int previous;
+        do {
+            previous = reasons.get();
+        } while (!reasons.compareAndSet(previous, previous | reason));
+        if (previous == 0) {
+            channel.config().setAutoRead(false);
+        }
+    }
+
+    public static void resume(Channel channel, int reason) {
+        AtomicInteger reasons = reasons(channel);
+        int previous;
+        int next;
+        do {
+            previous = reasons.get();
+            next = previous & ~reason;
+        } while (!reasons.compareAndSet(previous, next));
+        if (previous != 0 && next == 0) {
+            channel.config().setAutoRead(true);
+        }
+    }
+
+    private static AtomicInteger reasons(Channel channel) {
+        AtomicInteger reasons = channel.attr(REASONS).get();
+        if (reasons == null) {
+            reasons = new AtomicInteger();
+            AtomicInteger existing = channel.attr(REASONS).setIfAbsent(reasons);
+            if (existing != null) {
+                reasons = existing;
+            }
+        }
+        return reasons;
+    }
+}
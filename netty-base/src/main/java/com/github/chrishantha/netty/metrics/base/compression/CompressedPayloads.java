@@ -0,0 +1,106 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.base.compression;
+
+import com.github.chrishantha.netty.metrics.base.ResponsePayload;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compressed variants of the response payload.
+ * <p>
+ * Payloads are compressed once for each size bucket and content encoding, so that no compression is done when
+ * serving requests. The buckets are the maximum payload size and the powers of two below it, down to
+ * {@value #MIN_BUCKET_SIZE} bytes. A requested size is served with the largest bucket, which is not larger than the
+ * requested size.
+ */
+public final class CompressedPayloads {
+
+    private static final int MIN_BUCKET_SIZE = 64;
+
+    /**
+     * Bucket sizes in increasing order
+     */
+    private final int[] bucketSizes;
+
+    /**
+     * Compressed payloads indexed by encoding and bucket
+     */
+    private final ByteBuf[][] payloads;
+
+    public CompressedPayloads(ResponsePayload responsePayload) {
+        int maxSize = responsePayload.getMaxSize();
+        List<Integer> sizes = new ArrayList<>();
+        for (int size = MIN_BUCKET_SIZE; size < maxSize; size <<= 1) {
+            sizes.add(size);
+        }
+        sizes.add(maxSize);
+        bucketSizes = new int[sizes.size()];
+        for (int i = 0; i < bucketSizes.length; i++) {
+            bucketSizes[i] = sizes.get(i);
+        }
+
+        ContentEncoding[] encodings = ContentEncoding.values();
+        payloads = new ByteBuf[encodings.length][bucketSizes.length];
+        for (int i = 0; i < bucketSizes.length; i++) {
+            ByteBuf payload = responsePayload.newPayload(UnpooledByteBufAllocator.DEFAULT, bucketSizes[i]);
+            byte[] data;
+            try {
+                data = ByteBufUtil.getBytes(payload);
+            } finally {
+                payload.release();
+            }
+            for (ContentEncoding encoding : encodings) {
+                byte[] compressed = encoding.compress(data);
+                payloads[encoding.ordinal()][i] = Unpooled.unreleasableBuffer(
+                        Unpooled.directBuffer(compressed.length).writeBytes(compressed).asReadOnly());
+            }
+        }
+    }
+
+    private int bucket(int size) {
+        for (int i = bucketSizes.length - 1; i > 0; i--) {
+            if (bucketSizes[i] <= size) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @param size Requested payload size in bytes
+     * @return Size of the uncompressed payload served for the requested size
+     */
+    public int uncompressedSize(int size) {
+        return bucketSizes[bucket(size)];
+    }
+
+    /**
+     * Get the compressed payload for the given size. The caller is responsible for releasing the returned buffer.
+     *
+     * @param encoding Content encoding
+     * @param size     Requested payload size in bytes
+     * @return Compressed payload buffer
+     */
+    public ByteBuf newPayload(ContentEncoding encoding, int size) {
+        return payloads[encoding.ordinal()][bucket(size)].retainedDuplicate();
+    }
+}
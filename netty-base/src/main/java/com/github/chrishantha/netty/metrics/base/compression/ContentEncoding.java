@@ -0,0 +1,128 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.base.compression;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Content encodings supported for precompressed responses.
+ * <p>
+ * Brotli is not supported, as there is no Brotli encoder in the Netty version used in this project.
+ */
+public enum ContentEncoding {
+
+    GZIP("gzip") {
+        @Override
+        OutputStream newOutputStream(OutputStream out) throws IOException {
+            return new GZIPOutputStream(out) {
+                {
+                    def.setLevel(Deflater.BEST_COMPRESSION);
+                }
+            };
+        }
+    },
+
+    /**
+     * The zlib format, as specified for the HTTP deflate content coding
+     */
+    DEFLATE("deflate") {
+        @Override
+        OutputStream newOutputStream(OutputStream out) {
+            return new DeflaterOutputStream(out, new Deflater(Deflater.BEST_COMPRESSION));
+        }
+    };
+
+    private final String headerValue;
+
+    ContentEncoding(String headerValue) {
+        this.headerValue = headerValue;
+    }
+
+    public String getHeaderValue() {
+        return headerValue;
+    }
+
+    abstract OutputStream newOutputStream(OutputStream out) throws IOException;
+
+    byte[] compress(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 64);
+        try (OutputStream compressor = newOutputStream(out)) {
+            compressor.write(data);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Select the encoding preferred by the client. Gzip is preferred over deflate when the quality values are equal.
+     *
+     * @param acceptEncoding Value of the Accept-Encoding header. Can be {@code null}.
+     * @return The selected encoding or {@code null} if the client does not accept a supported encoding
+     */
+    public static ContentEncoding negotiate(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        ContentEncoding selected = null;
+        float selectedQuality = 0;
+        float wildcardQuality = -1;
+        float gzipQuality = -1;
+        float deflateQuality = -1;
+        for (String coding : acceptEncoding.split(",")) {
+            float quality = 1;
+            int semicolon = coding.indexOf(';');
+            String name = (semicolon < 0 ? coding : coding.substring(0, semicolon)).trim();
+            if (semicolon >= 0) {
+                int equals = coding.indexOf('=', semicolon);
+                if (equals >= 0) {
+                    try {
+                        quality = Float.parseFloat(coding.substring(equals + 1).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if ("*".equals(name)) {
+                wildcardQuality = quality;
+            } else if (GZIP.headerValue.equalsIgnoreCase(name)) {
+                gzipQuality = quality;
+            } else if (DEFLATE.headerValue.equalsIgnoreCase(name)) {
+                deflateQuality = quality;
+            }
+        }
+        // Encodings not listed get the quality of the wildcard
+        if (gzipQuality < 0) {
+            gzipQuality = wildcardQuality;
+        }
+        if (deflateQuality < 0) {
+            deflateQuality = wildcardQuality;
+        }
+        if (gzipQuality > selectedQuality) {
+            selected = GZIP;
+            selectedQuality = gzipQuality;
+        }
+        if (deflateQuality > selectedQuality) {
+            selected = DEFLATE;
+        }
+        return selected;
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.base.connection;
+
+import com.github.chrishantha.netty.metrics.base.striped.StripedCounter;
+
+/**
+ * Metrics of the accepted connections.
+ * <p>
+ * Connection and byte counts are {@link StripedCounter}s, which are updated by each event loop without contention.
+ * The lifetime and the number of requests of each closed connection are recorded by the metrics backend.
+ */
+public abstract class ConnectionMetrics {
+
+    private final StripedCounter openedConnections = new StripedCounter();
+    private final StripedCounter closedConnections = new StripedCounter();
+    private final StripedCounter bytesRead = new StripedCounter();
+    private final StripedCounter bytesWritten = new StripedCounter();
+
+    void connectionOpened() {
+        openedConnections.increment();
+    }
+
+    void connectionClosed(long lifetimeNanos, long requests) {
+        closedConnections.increment();
+        recordConnection(lifetimeNanos, requests);
+    }
+
+    void bytesRead(long bytes) {
+        bytesRead.add(bytes);
+    }
+
+    void bytesWritten(long bytes) {
+        bytesWritten.add(bytes);
+    }
+
+    /**
+     * Record a closed connection.
+     *
+     * @param lifetimeNanos Time from the connection becoming active until it was closed, in nanoseconds
+     * @param requests      Number of HTTP requests received on the connection
+     */
+    protected abstract void recordConnection(long lifetimeNanos, long requests);
+
+    /**
+     * @return Total number of accepted connections
+     */
+    public long getTotalConnections() {
+        return openedConnections.sum();
+    }
+
+    /**
+     * @return Number of open connections
+     */
+    public long getActiveConnections() {
+        // Read the closed count first, so that a concurrent close does not make the result negative
+        long closed = closedConnections.sum();
+        return openedConnections.sum() - closed;
+    }
+
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.base.connection;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufHolder;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import io.netty.util.AttributeKey;
+
+/**
+ * Tracks a connection and counts the bytes read from and written to the socket.
+ * <p>
+ * The handler must be the first in the pipeline, so that it sees the bytes on the wire, including TLS records. A new
+ * instance is created for each connection. HTTP requests are counted by {@link RequestCountingHandler}, which finds
+ * the handler of the connection with a channel attribute.
+ */
+public final class ConnectionMetricsHandler extends ChannelDuplexHandler {
+
+    private static final AttributeKey<ConnectionMetricsHandler> CONNECTION_METRICS_HANDLER =
+            AttributeKey.valueOf(ConnectionMetricsHandler.class, "connectionMetricsHandler");
+
+    private final ConnectionMetrics connectionMetrics;
+
+    private long activeTime;
+
+    private long requests;
+
+    public ConnectionMetricsHandler(ConnectionMetrics connectionMetrics) {
+        this.connectionMetrics = connectionMetrics;
+    }
+
+    /**
+     * Get the handler of the connection. HTTP/2 streams are counted in their parent connection.
+     *
+     * @param channel Connection or HTTP/2 stream channel
+     * @return The handler or {@code null} if the connection is not tracked
+     */
+    static ConnectionMetricsHandler get(Channel channel) {
+        Channel connection = channel instanceof Http2StreamChannel ? channel.parent() : channel;
+        return connection.attr(CONNECTION_METRICS_HANDLER).get();
+    }
+
+    /**
+     * Called from the event loop of the connection when a request is received.
+     */
+    void requestReceived() {
+        requests++;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) {
+        ctx.channel().attr(CONNECTION_METRICS_HANDLER).set(this);
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        activeTime = System.nanoTime();
+        connectionMetrics.connectionOpened();
+        super.channelActive(ctx);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        connectionMetrics.connectionClosed(System.nanoTime() - activeTime, requests);
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        long size = size(msg);
+        if (size > 0) {
+            connectionMetrics.bytesRead(size);
+        }
+        super.channelRead(ctx, msg);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        long size = size(msg);
+        if (size > 0) {
+            connectionMetrics.bytesWritten(size);
+        }
+        super.write(ctx, msg, promise);
+    }
+
+    private static long size(Object msg) {
+        if (msg instanceof ByteBuf) {
+            return ((ByteBuf) msg).readableBytes();
+        }
+        if (msg instanceof ByteBufHolder) {
+            return ((ByteBufHolder) msg).content().readableBytes();
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.base.connection;
+
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.HttpRequest;
+
+/**
+ * Counts the HTTP requests received on each connection tracked by {@link ConnectionMetricsHandler}.
+ * <p>
+ * The handler is added after the HTTP codec and must run on the event loop of the connection.
+ */
+@ChannelHandler.Sharable
+public final class RequestCountingHandler extends ChannelInboundHandlerAdapter {
+
+    public static final RequestCountingHandler INSTANCE = new RequestCountingHandler();
+
+    private RequestCountingHandler() {
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof HttpRequest) {
+            ConnectionMetricsHandler handler = ConnectionMetricsHandler.get(ctx.channel());
+            if (handler != null) {
+                handler.requestReceived();
+            }
+        }
+        super.channelRead(ctx, msg);
+    }
+}
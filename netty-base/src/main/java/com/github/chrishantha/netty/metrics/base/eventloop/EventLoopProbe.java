@@ -0,0 +1,203 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.base.eventloop;
+
+import io.netty.util.concurrent.AbstractScheduledEventExecutor;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorGroup;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodic task measuring the health of an event loop.
+ * <p>
+ * The probe is scheduled on the event loop itself, so that all values are read from the event loop thread and
+ * published for the metrics backends. Each run records:
+ * <ul>
+ * <li>the number of pending tasks and scheduled tasks,</li>
+ * <li>the lag, which is how late the probe ran after its deadline. A blocked event loop delays the probe,</li>
+ * <li>the busy ratio, which is the CPU time of the event loop thread divided by the elapsed time since the previous
+ * run. The remaining time is spent waiting in select or blocked in a handler.</li>
+ * </ul>
+ * Netty does not expose the scheduled task queue or the time spent in select. The scheduled task count is read with
+ * reflection and the busy ratio is derived from the thread CPU time.
+ */
+public final class EventLoopProbe implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventLoopProbe.class);
+
+    private static final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    private static final Field scheduledTaskQueueField = scheduledTaskQueueField();
+
+    private final String group;
+
+    private final int index;
+
+    private final SingleThreadEventExecutor executor;
+
+    private final long intervalNanos;
+
+    private long deadline;
+
+    private long lastRunTime;
+
+    private long lastCpuTime;
+
+    private volatile int pendingTasks;
+
+    private volatile int scheduledTasks;
+
+    private volatile long lagNanos;
+
+    private volatile double busyRatio;
+
+    private EventLoopProbe(String group, int index, SingleThreadEventExecutor executor, long intervalNanos) {
+        this.group = group;
+        this.index = index;
+        this.executor = executor;
+        this.intervalNanos = intervalNanos;
+    }
+
+    /**
+     * Start a probe on each event loop of the given group.
+     *
+     * @param group          Name of the group, used as a label
+     * @param executorGroup  Event loop group
+     * @param interval       Interval between probes
+     * @param unit           Unit of the interval
+     * @return Probes of the event loops
+     */
+    public static List<EventLoopProbe> start(String group, EventExecutorGroup executorGroup, long interval,
+                                             TimeUnit unit) {
+        List<EventLoopProbe> probes = new ArrayList<>();
+        int index = 0;
+        for (EventExecutor executor : executorGroup) {
+            if (executor instanceof SingleThreadEventExecutor) {
+                EventLoopProbe probe = new EventLoopProbe(group, index, (SingleThreadEventExecutor) executor,
+                        unit.toNanos(interval));
+                executor.execute(probe::init);
+                probes.add(probe);
+            }
+            index++;
+        }
+        return probes;
+    }
+
+    private void init() {
+        lastRunTime = System.nanoTime();
+        lastCpuTime = currentThreadCpuTime();
+        schedule();
+    }
+
+    private void schedule() {
+        if (!executor.isShuttingDown()) {
+            deadline = System.nanoTime() + intervalNanos;
+            executor.schedule(this, intervalNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void run() {
+        long now = System.nanoTime();
+        lagNanos = Math.max(0, now - deadline);
+        long cpuTime = currentThreadCpuTime();
+        if (cpuTime >= 0 && lastCpuTime >= 0 && now > lastRunTime) {
+            busyRatio = Math.min(1, (double) (cpuTime - lastCpuTime) / (now - lastRunTime));
+        }
+        lastRunTime = now;
+        lastCpuTime = cpuTime;
+        pendingTasks = executor.pendingTasks();
+        // This probe is not in the queue while running
+        scheduledTasks = scheduledTaskCount();
+        schedule();
+    }
+
+    private int scheduledTaskCount() {
+        if (scheduledTaskQueueField == null) {
+            return 0;
+        }
+        try {
+            Collection<?> queue = (Collection<?>) scheduledTaskQueueField.get(executor);
+            return queue != null ? queue.size() : 0;
+        } catch (IllegalAccessException e) {
+            return 0;
+        }
+    }
+
+    private static long currentThreadCpuTime() {
+        return threadMXBean.isCurrentThreadCpuTimeSupported() ? threadMXBean.getCurrentThreadCpuTime() : -1;
+    }
+
+    private static Field scheduledTaskQueueField() {
+        try {
+            Field field = AbstractScheduledEventExecutor.class.getDeclaredField("scheduledTaskQueue");
+            field.setAccessible(true);
+            return field;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.warn("Scheduled tasks of event loops cannot be counted", e);
+            return null;
+        }
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    /**
+     * @return Index of the event loop in the group, as a string to be used as a label
+     */
+    public String getIndex() {
+        return Integer.toString(index);
+    }
+
+    /**
+     * @return Number of tasks waiting in the task queue at the last probe
+     */
+    public int getPendingTasks() {
+        return pendingTasks;
+    }
+
+    /**
+     * @return Number of scheduled tasks at the last probe
+     */
+    public int getScheduledTasks() {
+        return scheduledTasks;
+    }
+
+    /**
+     * @return Delay of the last probe after its deadline in nanoseconds
+     */
+    public long getLagNanos() {
+        return lagNanos;
+    }
+
+    /**
+     * @return Fraction of the last interval the event loop thread was running on a CPU. From 0 to 1.
+     */
+    public double getBusyRatio() {
+        return busyRatio;
+    }
+}
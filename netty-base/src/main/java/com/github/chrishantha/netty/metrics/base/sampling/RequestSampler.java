@@ -0,0 +1,84 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.base.sampling;
+
+import com.beust.jcommander.IValueValidator;
+import com.beust.jcommander.ParameterException;
+import com.github.chrishantha.netty.metrics.base.striped.StripedCounter;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Selects the requests, for which the latency and size distributions are recorded.
+ * <p>
+ * Each request is sampled with a probability of 1/N, decided by the generator of the current thread, so that the
+ * event loops do not share any state. A sampled request is recorded with a weight of N, so that the counts and sums of
+ * the distributions estimate all requests. Backends without weighted recording scale them by N when they are read,
+ * since every sampled request has the same weight. The request counters are always updated.
+ */
+public final class RequestSampler {
+
+    private final int sampleRate;
+
+    private final StripedCounter sampledRequests = new StripedCounter();
+
+    /**
+     * @param sampleRate Record 1 in N requests. One records every request.
+     */
+    public RequestSampler(int sampleRate) {
+        if (sampleRate < 1) {
+            throw new IllegalArgumentException("Sample rate must be at least one: " + sampleRate);
+        }
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * Decide whether the next request is recorded.
+     *
+     * @return The weight of the request or zero if the request is not sampled
+     */
+    public int nextWeight() {
+        if (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+            return 0;
+        }
+        sampledRequests.increment();
+        return sampleRate;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * @return Number of requests recorded in the distributions
+     */
+    public long getSampledRequests() {
+        return sampledRequests.sum();
+    }
+
+    /**
+     * Validates sample rate option values.
+     */
+    public static class Validator implements IValueValidator<Integer> {
+
+        @Override
+        public void validate(String name, Integer value) {
+            if (value < 1) {
+                throw new ParameterException(name + " must be at least one: " + value);
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.base.ssl;
+
+import com.github.chrishantha.netty.metrics.base.striped.StripedCounter;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Metrics of the TLS handshakes.
+ * <p>
+ * Handshake counts are {@link StripedCounter}s, which are updated by each event loop without contention. The latency
+ * of each completed handshake is recorded by the metrics backend.
+ */
+public abstract class HandshakeMetrics {
+
+    /**
+     * Number of session IDs remembered to detect resumed sessions. Same as the default session cache size of the JDK
+     * provider.
+     */
+    private static final int MAX_SESSION_IDS = 20480;
+
+    /**
+     * Number of independently locked shards of the session IDs. Must be a power of two.
+     */
+    private static final int SESSION_ID_SHARDS = 64;
+
+    private final StripedCounter handshakes = new StripedCounter();
+    private final StripedCounter resumedHandshakes = new StripedCounter();
+    private final StripedCounter failedHandshakes = new StripedCounter();
+
+    /**
+     * Session IDs sharded by hash, so that handshakes completing on different event loops rarely contend on a lock.
+     * Each shard evicts its least recently used IDs. Session IDs are random, which keeps the shards evenly filled.
+     */
+    private final SessionIdShard[] sessionIdShards = new SessionIdShard[SESSION_ID_SHARDS];
+
+    protected HandshakeMetrics() {
+        for (int i = 0; i < SESSION_ID_SHARDS; i++) {
+            sessionIdShards[i] = new SessionIdShard(MAX_SESSION_IDS / SESSION_ID_SHARDS);
+        }
+    }
+
+    void handshakeCompleted(long latencyNanos, boolean resumed) {
+        handshakes.increment();
+        if (resumed) {
+            resumedHandshakes.increment();
+        }
+        recordHandshake(latencyNanos);
+    }
+
+    /**
+     * Remember the ID of the session negotiated by a handshake.
+     *
+     * @param sessionId Session ID
+     * @return {@code true} if an earlier handshake negotiated a session with the same ID
+     */
+    boolean addSessionId(byte[] sessionId) {
+        if (sessionId.length == 0) {
+            return false;
+        }
+        ByteBuffer key = ByteBuffer.wrap(sessionId);
+        int hash = key.hashCode();
+        SessionIdShard shard = sessionIdShards[(hash ^ (hash >>> 16)) & (SESSION_ID_SHARDS - 1)];
+        synchronized (shard) {
+            return shard.put(key, Boolean.TRUE) != null;
+        }
+    }
+
+    void handshakeFailed() {
+        failedHandshakes.increment();
+    }
+
+    /**
+     * Record a completed handshake.
+     *
+     * @param latencyNanos Time from the connection becoming active until the handshake completed, in nanoseconds
+     */
+    protected abstract void recordHandshake(long latencyNanos);
+
+    /**
+     * @return Total number of completed handshakes, including resumed handshakes
+     */
+    public long getHandshakes() {
+        return handshakes.sum();
+    }
+
+    /**
+     * @return Number of completed handshakes, which resumed a previous session
+     */
+    public long getResumedHandshakes() {
+        return resumedHandshakes.sum();
+    }
+
+    /**
+     * @return Number of handshakes, which failed or did not complete before the connection was closed
+     */
+    public long getFailedHandshakes() {
+        return failedHandshakes.sum();
+    }
+
+    /**
+     * @return Ratio of resumed handshakes to completed handshakes
+     */
+    public double getResumptionRatio() {
+        // Read the resumed count first, so that the ratio does not exceed one
+        long resumed = resumedHandshakes.sum();
+        long total = handshakes.sum();
+        return total == 0 ? 0 : (double) resumed / total;
+    }
+
+    private static final class SessionIdShard extends LinkedHashMap<ByteBuffer, Boolean> {
+
+        private final int maxSize;
+
+        private SessionIdShard(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ByteBuffer, Boolean> eldest) {
+            return size() > maxSize;
+        }
+    }
+}
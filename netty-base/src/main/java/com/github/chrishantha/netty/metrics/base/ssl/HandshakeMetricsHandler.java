@@ -0,0 +1,82 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.base.ssl;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.ssl.ReferenceCountedOpenSslEngine;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.ssl.SslHandshakeCompletionEvent;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLSession;
+
+/**
+ * Records the latency and the outcome of the TLS handshake of a connection.
+ * <p>
+ * The handler must be added after the {@link SslHandler}. A new instance is created for each connection and removes
+ * itself once the handshake completes.
+ * <p>
+ * Neither provider reports whether the handshake resumed a session, so a handshake is counted as resumed when an
+ * earlier handshake negotiated a session with the same ID. A session resumed from a session ticket gets a new ID. The
+ * OpenSSL provider reports an empty ID for such a session, and the JDK provider keeps the creation time of the
+ * original session.
+ */
+public final class HandshakeMetricsHandler extends ChannelInboundHandlerAdapter {
+
+    private final HandshakeMetrics handshakeMetrics;
+
+    private long startNanos;
+
+    private long startMillis;
+
+    public HandshakeMetricsHandler(HandshakeMetrics handshakeMetrics) {
+        this.handshakeMetrics = handshakeMetrics;
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        startNanos = System.nanoTime();
+        startMillis = System.currentTimeMillis();
+        super.channelActive(ctx);
+    }
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+        if (evt instanceof SslHandshakeCompletionEvent) {
+            if (((SslHandshakeCompletionEvent) evt).isSuccess()) {
+                SSLEngine engine = ctx.pipeline().get(SslHandler.class).engine();
+                handshakeMetrics.handshakeCompleted(System.nanoTime() - startNanos, isResumed(engine));
+            } else {
+                handshakeMetrics.handshakeFailed();
+            }
+            ctx.pipeline().remove(this);
+        }
+        super.userEventTriggered(ctx, evt);
+    }
+
+    private boolean isResumed(SSLEngine engine) {
+        SSLSession session = engine.getSession();
+        byte[] sessionId = session.getId();
+        if (handshakeMetrics.addSessionId(sessionId)) {
+            return true;
+        }
+        if (engine instanceof ReferenceCountedOpenSslEngine) {
+            return sessionId.length == 0;
+        }
+        return session.getCreationTime() < startMillis;
+    }
+}
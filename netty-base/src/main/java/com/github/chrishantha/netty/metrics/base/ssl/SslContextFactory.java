@@ -0,0 +1,130 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.base.ssl;
+
+import com.github.chrishantha.netty.metrics.base.args.ServerArgs;
+import io.netty.handler.codec.http2.Http2SecurityUtil;
+import io.netty.handler.ssl.ApplicationProtocolConfig;
+import io.netty.handler.ssl.ApplicationProtocolNames;
+import io.netty.handler.ssl.OpenSsl;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslProvider;
+import io.netty.handler.ssl.SupportedCipherSuiteFilter;
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+import io.netty.util.internal.PlatformDependent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.cert.CertificateException;
+
+/**
+ * Creates the server {@link SslContext} from the server arguments.
+ * <p>
+ * The key and the certificate are loaded from disk when both files exist. Otherwise, a self-signed certificate is
+ * generated. When the file names are given, the generated certificate is saved, so that later startups load it
+ * instead of generating a new one.
+ */
+public final class SslContextFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(SslContextFactory.class);
+
+    /**
+     * System property read by the JDK provider (JDK 13 and later) to enable stateless session resumption
+     */
+    private static final String JDK_SESSION_TICKETS_PROPERTY = "jdk.tls.server.enableSessionTicketExtension";
+
+    private SslContextFactory() {
+    }
+
+    /**
+     * Set the system properties read by the JDK provider. The JDK provider reads the properties only once, so this
+     * must be called before any use of JSSE.
+     *
+     * @param serverArgs Server arguments
+     */
+    public static void setSystemProperties(ServerArgs serverArgs) {
+        System.setProperty(JDK_SESSION_TICKETS_PROPERTY, Boolean.toString(serverArgs.isSslSessionTickets()));
+    }
+
+    public static SslContext newServerContext(ServerArgs serverArgs) throws CertificateException, IOException {
+        SslProvider provider = serverArgs.getSslProvider();
+        if (provider != SslProvider.JDK && !OpenSsl.isAvailable()) {
+            logger.warn("OpenSSL is not available: {}. Falling back to JDK SSL provider",
+                    OpenSsl.unavailabilityCause().toString());
+            provider = SslProvider.JDK;
+        }
+        if (provider == SslProvider.JDK) {
+            if (serverArgs.isSslSessionTickets() && PlatformDependent.javaVersion() < 13) {
+                logger.warn("Session tickets are supported by the JDK provider only on Java 13 and later. Ignoring.");
+            }
+        } else if (!serverArgs.isSslSessionTickets()) {
+            logger.warn("Session tickets cannot be disabled with the OpenSSL provider. Ignoring.");
+        }
+        logger.info("SSL Provider: {}", provider);
+
+        SslContextBuilder sslContextBuilder = newBuilder(serverArgs).sslProvider(provider)
+                .sessionCacheSize(serverArgs.getSslSessionCacheSize())
+                .sessionTimeout(serverArgs.getSslSessionTimeout());
+        if (!serverArgs.getSslProtocols().isEmpty()) {
+            sslContextBuilder.protocols(serverArgs.getSslProtocols().toArray(new String[0]));
+        }
+        if (!serverArgs.getSslCiphers().isEmpty()) {
+            sslContextBuilder.ciphers(serverArgs.getSslCiphers(), SupportedCipherSuiteFilter.INSTANCE);
+        } else if (serverArgs.isHttp2()) {
+            sslContextBuilder.ciphers(Http2SecurityUtil.CIPHERS, SupportedCipherSuiteFilter.INSTANCE);
+        }
+        if (serverArgs.isHttp2()) {
+            sslContextBuilder.applicationProtocolConfig(new ApplicationProtocolConfig(
+                    ApplicationProtocolConfig.Protocol.ALPN,
+                    ApplicationProtocolConfig.SelectorFailureBehavior.NO_ADVERTISE,
+                    ApplicationProtocolConfig.SelectedListenerFailureBehavior.ACCEPT,
+                    ApplicationProtocolNames.HTTP_2,
+                    ApplicationProtocolNames.HTTP_1_1));
+        }
+        SslContext sslCtx = sslContextBuilder.build();
+        logger.info("SSL Cipher Suites: {}", sslCtx.cipherSuites());
+        return sslCtx;
+    }
+
+    private static SslContextBuilder newBuilder(ServerArgs serverArgs) throws CertificateException, IOException {
+        if (serverArgs.getSslCertificate() == null && serverArgs.getSslKey() == null) {
+            SelfSignedCertificate ssc = new SelfSignedCertificate();
+            return SslContextBuilder.forServer(ssc.key(), ssc.cert());
+        }
+        if (serverArgs.getSslCertificate() == null || serverArgs.getSslKey() == null) {
+            throw new IllegalStateException("Both the certificate and the key files must be given");
+        }
+        File certificate = new File(serverArgs.getSslCertificate());
+        File key = new File(serverArgs.getSslKey());
+        if (!certificate.exists() && !key.exists()) {
+            SelfSignedCertificate ssc = new SelfSignedCertificate();
+            try {
+                Files.copy(ssc.certificate().toPath(), certificate.toPath());
+                Files.copy(ssc.privateKey().toPath(), key.toPath());
+            } finally {
+                ssc.delete();
+            }
+            logger.info("Saved self-signed certificate to {} and key to {}", certificate, key);
+        } else {
+            logger.info("Loading certificate from {} and key from {}", certificate, key);
+        }
+        return SslContextBuilder.forServer(certificate, key, serverArgs.getSslKeyPassword());
+    }
+}
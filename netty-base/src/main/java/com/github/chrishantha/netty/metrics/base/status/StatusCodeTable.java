@@ -0,0 +1,120 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.base.status;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntFunction;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Meters indexed by HTTP status code or status class.
+ * <p>
+ * The meters are kept in a dense array, so that the meter of a response is found with one array lookup, without any
+ * map lookup or label building. Each meter is built once, when its status code is seen for the first time, so that
+ * only the status codes returned by the server are exported. Status codes outside 100-599 share one meter, which is
+ * built with status code zero.
+ *
+ * @param <T> Meter type
+ */
+public final class StatusCodeTable<T> {
+
+    private static final int MIN_CODE = 100;
+
+    private static final int MAX_CODE = 599;
+
+    private static final String OTHER = "other";
+
+    private final AtomicReferenceArray<T> meters;
+
+    private final boolean byClass;
+
+    private final IntFunction<T> factory;
+
+    private StatusCodeTable(boolean byClass, IntFunction<T> factory) {
+        this.byClass = byClass;
+        this.factory = factory;
+        this.meters = new AtomicReferenceArray<>(byClass ? MAX_CODE / 100 + 1 : MAX_CODE - MIN_CODE + 2);
+    }
+
+    /**
+     * @param factory Builds the meter of a status code
+     */
+    public static <T> StatusCodeTable<T> byCode(IntFunction<T> factory) {
+        return new StatusCodeTable<>(false, factory);
+    }
+
+    /**
+     * @param factory Builds the meter of a status class. The class is given by its first status code, such as 200.
+     */
+    public static <T> StatusCodeTable<T> byClass(IntFunction<T> factory) {
+        return new StatusCodeTable<>(true, factory);
+    }
+
+    /**
+     * Get the meter of a status code.
+     */
+    public T get(int statusCode) {
+        int index = index(statusCode);
+        T meter = meters.get(index);
+        if (meter == null) {
+            meter = factory.apply(key(index));
+            if (!meters.compareAndSet(index, null, meter)) {
+                meter = meters.get(index);
+            }
+        }
+        return meter;
+    }
+
+    /**
+     * Call the given consumer with each built meter and its status code, or the first code of its status class.
+     */
+    public void forEach(ObjIntConsumer<T> consumer) {
+        for (int i = 0; i < meters.length(); i++) {
+            T meter = meters.get(i);
+            if (meter != null) {
+                consumer.accept(meter, key(i));
+            }
+        }
+    }
+
+    private int index(int statusCode) {
+        if (statusCode < MIN_CODE || statusCode > MAX_CODE) {
+            return meters.length() - 1;
+        }
+        return byClass ? statusCode / 100 - 1 : statusCode - MIN_CODE;
+    }
+
+    private int key(int index) {
+        if (index == meters.length() - 1) {
+            return 0;
+        }
+        return byClass ? (index + 1) * 100 : index + MIN_CODE;
+    }
+
+    /**
+     * @return Label value of a status code
+     */
+    public static String code(int statusCode) {
+        return statusCode < MIN_CODE || statusCode > MAX_CODE ? OTHER : Integer.toString(statusCode);
+    }
+
+    /**
+     * @return Label value of the class of a status code, such as {@code 2xx}
+     */
+    public static String statusClass(int statusCode) {
+        return statusCode < MIN_CODE || statusCode > MAX_CODE ? OTHER : statusCode / 100 + "xx";
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.base.striped;
+
+import io.netty.util.concurrent.FastThreadLocal;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * A counter striped by thread.
+ * <p>
+ * Each thread owns a cell, which is updated only from that thread without any atomic read-modify-write operation.
+ * Since an event loop runs on a single thread, each event loop updates its own cell and the event loops do not
+ * contend on a shared cache line. The cells are only summed when the counter is read, which is usually when the
+ * metrics are collected.
+ * <p>
+ * The counter can be decremented. Cells of terminated threads are kept, so that the sum does not go back.
+ */
+public final class StripedCounter {
+
+    private final Queue<Cell> cells = new ConcurrentLinkedQueue<>();
+
+    private final FastThreadLocal<Cell> threadCell = new FastThreadLocal<Cell>() {
+        @Override
+        protected Cell initialValue() {
+            Cell cell = new Cell();
+            cells.add(cell);
+            return cell;
+        }
+    };
+
+    public void add(long x) {
+        threadCell.get().add(x);
+    }
+
+    public void increment() {
+        add(1);
+    }
+
+    public void decrement() {
+        add(-1);
+    }
+
+    /**
+     * @return The sum of all cells. Concurrent updates may or may not be included.
+     */
+    public long sum() {
+        long sum = 0;
+        for (Cell cell : cells) {
+            sum += cell.value;
+        }
+        return sum;
+    }
+
+    private static final class Cell {
+
+        private static final AtomicLongFieldUpdater<Cell> VALUE_UPDATER =
+                AtomicLongFieldUpdater.newUpdater(Cell.class, "value");
+
+        private volatile long value;
+
+        private void add(long x) {
+            // Only the owner thread writes the value. An ordered store is enough to publish it to readers.
+            VALUE_UPDATER.lazySet(this, value + x);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.base.workload;
+
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * A distribution of latencies or sizes, which is sampled through a precomputed lookup table.
+ * <p>
+ * The table holds the values of evenly spaced quantiles, so that a uniformly chosen entry follows the distribution
+ * without any floating point work at sampling time. The tails are resolved up to the quantile of the last entry.
+ * <p>
+ * Distributions are written as {@code fixed(value)}, {@code uniform(min, max)}, {@code exponential(mean)},
+ * {@code lognormal(median, sigma)} and {@code bimodal(probability, first, second)}, where a bimodal distribution
+ * draws from the second distribution with the given probability.
+ */
+abstract class Distribution {
+
+    Distribution() {
+    }
+
+    /**
+     * Fill a range of the table with the values of the distribution.
+     *
+     * @param scale Multiplier converting values to the unit of the table
+     */
+    abstract void fill(int[] table, int from, int to, double scale);
+
+    /**
+     * @return Whether the distribution always gives the same value
+     */
+    boolean isFixed() {
+        return false;
+    }
+
+    /**
+     * Build the lookup table of the distribution.
+     *
+     * @param size  Size of the table. Must be a power of two. Fixed distributions use a single entry.
+     * @param scale Multiplier converting values to the unit of the table
+     */
+    int[] newTable(int size, double scale) {
+        int[] table = new int[isFixed() ? 1 : size];
+        fill(table, 0, table.length, scale);
+        return table;
+    }
+
+    static Distribution fixed(double value) {
+        return new Distribution() {
+            @Override
+            void fill(int[] table, int from, int to, double scale) {
+                for (int i = from; i < to; i++) {
+                    table[i] = toInt(value * scale);
+                }
+            }
+
+            @Override
+            boolean isFixed() {
+                return true;
+            }
+        };
+    }
+
+    static Distribution uniform(double min, double max) {
+        if (max < min) {
+            throw new IllegalStateException("Maximum is less than minimum: uniform(" + min + ", " + max + ")");
+        }
+        return ofQuantiles(p -> min + p * (max - min));
+    }
+
+    static Distribution exponential(double mean) {
+        return ofQuantiles(p -> -mean * Math.log(1 - p));
+    }
+
+    /**
+     * @param median Median, which is the exponential of the mean of the underlying normal distribution
+     * @param sigma  Standard deviation of the underlying normal distribution. Larger values give longer tails.
+     */
+    static Distribution logNormal(double median, double sigma) {
+        return ofQuantiles(p -> median * Math.exp(sigma * inverseNormal(p)));
+    }
+
+    /**
+     * @param probability Probability of drawing from the second distribution
+     */
+    static Distribution bimodal(double probability, Distribution first, Distribution second) {
+        if (probability < 0 || probability > 1) {
+            throw new IllegalStateException("Probability must be between 0 and 1: " + probability);
+        }
+        return new Distribution() {
+            @Override
+            void fill(int[] table, int from, int to, double scale) {
+                int split = to - (int) Math.round(probability * (to - from));
+                first.fill(table, from, split, scale);
+                second.fill(table, split, to, scale);
+            }
+        };
+    }
+
+    /**
+     * Create a distribution from its quantile function.
+     */
+    private static Distribution ofQuantiles(DoubleUnaryOperator quantile) {
+        return new Distribution() {
+            @Override
+            void fill(int[] table, int from, int to, double scale) {
+                int n = to - from;
+                for (int i = 0; i < n; i++) {
+                    table[from + i] = toInt(quantile.applyAsDouble((i + 0.5) / n) * scale);
+                }
+            }
+        };
+    }
+
+    private static int toInt(double value) {
+        return (int) Math.max(0, Math.min(Integer.MAX_VALUE, Math.round(value)));
+    }
+
+    /**
+     * Quantile function of the standard normal distribution. Uses the rational approximation by Peter Acklam, which
+     * has a relative error below 1.15e-9.
+     */
+    private static double inverseNormal(double p) {
+        final double[] a = {-3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02,
+                1.383577518672690e+02, -3.066479806614716e+01, 2.506628277459239e+00};
+        final double[] b = {-5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02,
+                6.680131188771972e+01, -1.328068155288572e+01};
+        final double[] c = {-7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00,
+                -2.549732539343734e+00, 4.374664141464968e+00, 2.938163982698783e+00};
+        final double[] d = {7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00,
+                3.754408661907416e+00};
+        double low = 0.02425;
+        if (p < low) {
+            double q = Math.sqrt(-2 * Math.log(p));
+            return (((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5]) /
+                    ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+        }
+        if (p > 1 - low) {
+            double q = Math.sqrt(-2 * Math.log(1 - p));
+            return -(((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5]) /
+                    ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+        }
+        double q = p - 0.5;
+        double r = q * q;
+        return (((((a[0] * r + a[1]) * r + a[2]) * r + a[3]) * r + a[4]) * r + a[5]) * q /
+                (((((b[0] * r + b[1]) * r + b[2]) * r + b[3]) * r + b[4]) * r + 1);
+    }
+
+    /**
+     * Parse a distribution, such as {@code bimodal(0.05, lognormal(10, 0.5), uniform(200, 400))}.
+     */
+    static Distribution parse(String text) {
+        return DistributionParser.parse(text);
+    }
+}
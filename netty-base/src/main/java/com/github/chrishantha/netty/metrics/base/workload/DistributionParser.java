@@ -0,0 +1,156 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.base.workload;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recursive descent parser of distributions
+ */
+final class DistributionParser {
+
+    private final String text;
+
+    private int position;
+
+    private DistributionParser(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Parse a distribution, such as {@code bimodal(0.05, lognormal(10, 0.5), uniform(200, 400))}.
+     */
+    static Distribution parse(String text) {
+        DistributionParser parser = new DistributionParser(text);
+        Distribution distribution = parser.distribution();
+        parser.end();
+        return distribution;
+    }
+
+    private Distribution distribution() {
+        String name = name();
+        List<Object> args = new ArrayList<>();
+        expect('(');
+        if (peek() != ')') {
+            args.add(argument());
+            while (peek() == ',') {
+                position++;
+                args.add(argument());
+            }
+        }
+        expect(')');
+        switch (name) {
+            case "fixed":
+                checkArgs(name, args, 1);
+                return Distribution.fixed(number(args, 0));
+            case "uniform":
+                checkArgs(name, args, 2);
+                return Distribution.uniform(number(args, 0), number(args, 1));
+            case "exponential":
+                checkArgs(name, args, 1);
+                return Distribution.exponential(number(args, 0));
+            case "lognormal":
+                checkArgs(name, args, 2);
+                return Distribution.logNormal(number(args, 0), number(args, 1));
+            case "bimodal":
+                checkArgs(name, args, 3);
+                return Distribution.bimodal(number(args, 0), distribution(args, 1), distribution(args, 2));
+            default:
+                throw error("Unknown distribution '" + name + "'");
+        }
+    }
+
+    private Object argument() {
+        char c = peek();
+        return Character.isLetter(c) ? distribution() : number();
+    }
+
+    private String name() {
+        skipWhitespace();
+        int start = position;
+        while (position < text.length() && Character.isLetter(text.charAt(position))) {
+            position++;
+        }
+        if (start == position) {
+            throw error("Expected a distribution");
+        }
+        return text.substring(start, position).toLowerCase();
+    }
+
+    private Double number() {
+        skipWhitespace();
+        int start = position;
+        while (position < text.length() && "0123456789.-+eE".indexOf(text.charAt(position)) >= 0) {
+            position++;
+        }
+        try {
+            return Double.valueOf(text.substring(start, position));
+        } catch (NumberFormatException e) {
+            throw error("Expected a number");
+        }
+    }
+
+    private char peek() {
+        skipWhitespace();
+        return position < text.length() ? text.charAt(position) : 0;
+    }
+
+    private void expect(char c) {
+        if (peek() != c) {
+            throw error("Expected '" + c + "'");
+        }
+        position++;
+    }
+
+    private void end() {
+        if (peek() != 0) {
+            throw error("Unexpected text");
+        }
+    }
+
+    private void skipWhitespace() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+
+    private void checkArgs(String name, List<Object> args, int count) {
+        if (args.size() != count) {
+            throw error(name + " takes " + count + " arguments");
+        }
+    }
+
+    private double number(List<Object> args, int index) {
+        Object arg = args.get(index);
+        if (!(arg instanceof Double)) {
+            throw error("Argument " + (index + 1) + " must be a number");
+        }
+        return (Double) arg;
+    }
+
+    private Distribution distribution(List<Object> args, int index) {
+        Object arg = args.get(index);
+        if (!(arg instanceof Distribution)) {
+            throw error("Argument " + (index + 1) + " must be a distribution");
+        }
+        return (Distribution) arg;
+    }
+
+    private IllegalStateException error(String message) {
+        return new IllegalStateException(message + " at position " + position + ": " + text);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.base.workload;
+
+import io.netty.handler.codec.http.HttpResponseStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A mix of response status codes, which is sampled through a precomputed lookup table.
+ * <p>
+ * A mix is written as comma separated status codes with optional weights, such as {@code 200:95, 404:3, 503:2}. The
+ * default weight is one. A range of status codes, such as {@code 500-599:2}, shares its weight evenly.
+ */
+final class StatusMix {
+
+    private StatusMix() {
+    }
+
+    /**
+     * Build the lookup table of a status code mix.
+     *
+     * @param size Size of the table. Must be a power of two. A single status code uses a single entry.
+     */
+    static HttpResponseStatus[] parse(String text, int size) {
+        List<HttpResponseStatus> statuses = new ArrayList<>();
+        List<Double> weights = new ArrayList<>();
+        for (String entry : text.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length > 2 || parts[0].isEmpty()) {
+                throw new IllegalStateException("Invalid status code mix: " + text);
+            }
+            try {
+                double weight = parts.length == 2 ? Double.parseDouble(parts[1].trim()) : 1;
+                String[] range = parts[0].trim().split("-");
+                int first = Integer.parseInt(range[0].trim());
+                int last = range.length > 1 ? Integer.parseInt(range[1].trim()) : first;
+                if (range.length > 2 || last < first || weight < 0) {
+                    throw new IllegalStateException("Invalid status code mix: " + text);
+                }
+                for (int code = first; code <= last; code++) {
+                    statuses.add(status(code));
+                    weights.add(weight / (last - first + 1));
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IllegalStateException("Invalid status code mix: " + text, e);
+            }
+        }
+        double totalWeight = weights.stream().mapToDouble(Double::doubleValue).sum();
+        if (totalWeight <= 0) {
+            throw new IllegalStateException("Status code mix has no weight: " + text);
+        }
+        HttpResponseStatus[] table = new HttpResponseStatus[statuses.size() == 1 ? 1 : size];
+        // Each status code gets the entries up to its cumulative weight, so that rounding errors do not add up
+        double cumulativeWeight = 0;
+        int from = 0;
+        for (int i = 0; i < statuses.size(); i++) {
+            cumulativeWeight += weights.get(i);
+            int to = i == statuses.size() - 1 ? table.length :
+                    (int) Math.round(cumulativeWeight / totalWeight * table.length);
+            for (int j = from; j < to; j++) {
+                table[j] = statuses.get(i);
+            }
+            from = Math.max(from, to);
+        }
+        return table;
+    }
+
+    private static HttpResponseStatus status(int code) {
+        if (code < 100 || code > 999) {
+            throw new IllegalStateException("Invalid status code: " + code);
+        }
+        HttpResponseStatus status = HttpResponseStatus.valueOf(code);
+        if (status == null) {
+            status = new HttpResponseStatus(code, "Random Status Code");
+        }
+        return status;
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.base.workload;
+
+import com.github.chrishantha.netty.metrics.base.args.HandlerArgs;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.util.concurrent.FastThreadLocal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * The latencies, payload sizes and status codes of the responses by route.
+ * <p>
+ * Without a profile file, every request uses the default route built from the sleep, payload and status code options.
+ * A profile file is a properties file, which can override the default route and define routes matched by the exact
+ * request path:
+ * <pre>
+ * seed=42
+ * default.latency=lognormal(5, 0.5)
+ * routes=orders,health
+ * orders.path=/orders
+ * orders.latency=bimodal(0.05, lognormal(20, 0.4), uniform(200, 400))
+ * orders.payload-size=exponential(8192)
+ * orders.status=200:97, 404:2, 503:1
+ * health.path=/health
+ * health.latency=fixed(0)
+ * </pre>
+ * Latencies are in milliseconds and payload sizes in bytes. See {@link Distribution} and {@link StatusMix} for the
+ * syntax. Properties not defined by a route are taken from the default route. The response payload is rendered at the
+ * largest payload size of all routes, so that the tails of the payload size distributions are not capped.
+ * <p>
+ * Each distribution is precomputed into a lookup table, and each thread samples the tables with its own generator.
+ * The generators are split from the seed, so that a seeded profile gives the same values on each thread in the order
+ * the threads start.
+ */
+public final class WorkloadProfile {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkloadProfile.class);
+
+    /**
+     * Size of the lookup tables. Resolves the tails up to the 99.998th percentile.
+     */
+    private static final int TABLE_SIZE = 1 << 16;
+
+    private static final String DEFAULT_ROUTE = "default";
+
+    private static final String SEED = "seed";
+
+    private static final String ROUTES = "routes";
+
+    private static final String PATH = "path";
+
+    private static final String LATENCY = "latency";
+
+    private static final String PAYLOAD_SIZE = "payload-size";
+
+    private static final String STATUS = "status";
+
+    private final SplittableRandom seedGenerator;
+
+    private final FastThreadLocal<SplittableRandom> generators = new FastThreadLocal<SplittableRandom>() {
+        @Override
+        protected SplittableRandom initialValue() {
+            synchronized (seedGenerator) {
+                return seedGenerator.split();
+            }
+        }
+    };
+
+    private final Route defaultRoute;
+
+    private final Map<String, Route> routes = new HashMap<>();
+
+    private final int maxPayloadSize;
+
+    private WorkloadProfile(HandlerArgs handlerArgs, Properties properties) {
+        String seed = properties.getProperty(SEED);
+        try {
+            this.seedGenerator = seed != null ? new SplittableRandom(Long.parseLong(seed.trim())) :
+                    new SplittableRandom();
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Invalid seed: " + seed, e);
+        }
+        Set<String> keys = new HashSet<>(properties.stringPropertyNames());
+        keys.remove(SEED);
+        keys.remove(ROUTES);
+
+        int sleepTime = handlerArgs.getSleepTime();
+        int payloadSize = handlerArgs.getPayloadSize();
+        String defaultLatency = sleepTime <= 0 ? "fixed(0)" :
+                handlerArgs.isRandomSleep() ? "uniform(0, " + sleepTime + ")" : "fixed(" + sleepTime + ")";
+        String defaultPayloadSize = handlerArgs.isRandomPayload() ? "uniform(0, " + payloadSize + ")" :
+                "fixed(" + payloadSize + ")";
+        String defaultStatus = handlerArgs.isRandomStatusCode() ? "100-599" : "200";
+        this.defaultRoute = new Route(
+                property(properties, keys, DEFAULT_ROUTE, LATENCY, defaultLatency),
+                property(properties, keys, DEFAULT_ROUTE, PAYLOAD_SIZE, defaultPayloadSize),
+                property(properties, keys, DEFAULT_ROUTE, STATUS, defaultStatus));
+
+        String routeNames = properties.getProperty(ROUTES, "");
+        for (String name : routeNames.split(",")) {
+            name = name.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            String path = property(properties, keys, name, PATH, null);
+            if (path == null) {
+                throw new IllegalStateException("Route " + name + " does not have a path");
+            }
+            Route route = new Route(
+                    property(properties, keys, name, LATENCY, defaultRoute.latency),
+                    property(properties, keys, name, PAYLOAD_SIZE, defaultRoute.payloadSize),
+                    property(properties, keys, name, STATUS, defaultRoute.status));
+            if (routes.put(path.trim(), route) != null) {
+                throw new IllegalStateException("Duplicate route path: " + path);
+            }
+            logger.info("Route {}: Path: {}, Latency (ms): {}, Payload Size (B): {}, Status: {}", name, path,
+                    route.latency, route.payloadSize, route.status);
+        }
+        if (!keys.isEmpty()) {
+            throw new IllegalStateException("Unknown workload profile properties: " + keys);
+        }
+        int maxPayloadSize = defaultRoute.maxPayloadSize();
+        for (Route route : routes.values()) {
+            maxPayloadSize = Math.max(maxPayloadSize, route.maxPayloadSize());
+        }
+        this.maxPayloadSize = maxPayloadSize;
+        logger.info("Default Route: Latency (ms): {}, Payload Size (B): {}, Status: {}", defaultRoute.latency,
+                defaultRoute.payloadSize, defaultRoute.status);
+        logger.info("Maximum Payload Size: {}B", maxPayloadSize);
+    }
+
+    /**
+     * Load the workload profile file given in the handler arguments, or create the default profile.
+     */
+    public static WorkloadProfile load(HandlerArgs handlerArgs) {
+        Properties properties = new Properties();
+        String file = handlerArgs.getWorkloadProfile();
+        if (file != null) {
+            try (Reader reader = Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not load the workload profile: " + file, e);
+            }
+        }
+        return new WorkloadProfile(handlerArgs, properties);
+    }
+
+    private static String property(Properties properties, Set<String> keys, String route, String name,
+                                   String defaultValue) {
+        String key = route + "." + name;
+        keys.remove(key);
+        return properties.getProperty(key, defaultValue);
+    }
+
+    /**
+     * Get the route of a request. Requests not matching any route use the default route.
+     */
+    public Route route(String uri) {
+        if (routes.isEmpty()) {
+            return defaultRoute;
+        }
+        int query = uri.indexOf('?');
+        Route route = routes.get(query < 0 ? uri : uri.substring(0, query));
+        return route != null ? route : defaultRoute;
+    }
+
+    /**
+     * @return Largest payload size of all routes in bytes
+     */
+    public int getMaxPayloadSize() {
+        return maxPayloadSize;
+    }
+
+    private int nextIndex(int mask) {
+        return mask == 0 ? 0 : generators.get().nextInt() & mask;
+    }
+
+    /**
+     * The distributions of a route
+     */
+    public final class Route {
+
+        private final String latency;
+
+        private final String payloadSize;
+
+        private final String status;
+
+        /**
+         * Latencies in microseconds
+         */
+        private final int[] latencies;
+
+        private final boolean sleep;
+
+        private final int[] payloadSizes;
+
+        private final HttpResponseStatus[] statuses;
+
+        private Route(String latency, String payloadSize, String status) {
+            this.latency = latency;
+            this.payloadSize = payloadSize;
+            this.status = status;
+            this.latencies = Distribution.parse(latency).newTable(TABLE_SIZE, 1000);
+            this.sleep = latencies.length > 1 || latencies[0] > 0;
+            this.payloadSizes = Distribution.parse(payloadSize).newTable(TABLE_SIZE, 1);
+            this.statuses = StatusMix.parse(status, TABLE_SIZE);
+        }
+
+        /**
+         * @return Whether the requests of the route sleep
+         */
+        public boolean isSleep() {
+            return sleep;
+        }
+
+        /**
+         * @return Next latency in microseconds
+         */
+        public long nextLatency() {
+            return latencies[nextIndex(latencies.length - 1)];
+        }
+
+        /**
+         * @return Next payload size in bytes
+         */
+        public int nextPayloadSize() {
+            return payloadSizes[nextIndex(payloadSizes.length - 1)];
+        }
+
+        public HttpResponseStatus nextStatus() {
+            return statuses[nextIndex(statuses.length - 1)];
+        }
+
+        private int maxPayloadSize() {
+            int max = 0;
+            for (int size : payloadSizes) {
+                max = Math.max(max, size);
+            }
+            return max;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.base;
+
+import com.github.chrishantha.netty.metrics.base.allocator.AllocatorMetrics;
+import com.github.chrishantha.netty.metrics.base.allocator.AllocatorMetrics.MemoryType;
+import com.github.chrishantha.netty.metrics.base.args.HandlerArgs;
+import com.github.chrishantha.netty.metrics.base.args.SleepMode;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalServerChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.CharsetUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AbstractNettyHttpServerHandlerTest {
+
+    // Without thread caches, every allocation is counted by the arenas
+    private final PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 1, 1, 8192, 11, 0, 0, 0, false);
+
+    private final AllocatorMetrics allocatorMetrics = new AllocatorMetrics(allocator.metric());
+
+    private TestHandler handler;
+
+    private EmbeddedChannel channel;
+
+    @Before
+    public void setUp() {
+        handler = new TestHandler();
+        handler.init(new HandlerArgs(), null);
+        channel = new EmbeddedChannel();
+        channel.config().setAllocator(allocator);
+        channel.pipeline().addLast(handler);
+    }
+
+    @After
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void echoDoesNotAllocate() {
+        ByteBuf content = allocator.directBuffer().writeBytes("Hello, Netty!".getBytes(CharsetUtil.UTF_8));
+        long activeAllocations = activeAllocations();
+
+        channel.writeInbound(new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/", content));
+        FullHttpResponse response = channel.readOutbound();
+
+        // Either buffer may be wrapped by the leak detector, so the innermost buffers are compared
+        assertSame(innermost(content), innermost(response.content()));
+        assertEquals("Hello, Netty!", response.content().toString(CharsetUtil.UTF_8));
+        assertEquals(activeAllocations, activeAllocations());
+        // The request is released by the handler and the response holds the only reference
+        assertEquals(1, content.refCnt());
+        response.release();
+        assertEquals(0, content.refCnt());
+        assertNull(channel.readOutbound());
+    }
+
+    @Test
+    public void firstByteIsRecordedOncePerStreamingResponse() {
+        channel.writeInbound(new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/"));
+        assertEquals(0, handler.firstBytes);
+        channel.writeInbound(new DefaultHttpContent(Unpooled.copiedBuffer("Hello, ", CharsetUtil.UTF_8)));
+        channel.writeInbound(new DefaultHttpContent(Unpooled.copiedBuffer("Netty!", CharsetUtil.UTF_8)));
+        channel.writeInbound(LastHttpContent.EMPTY_LAST_CONTENT);
+        assertEquals(1, handler.firstBytes);
+
+        // A response without content is recorded when it ends
+        channel.writeInbound(new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/"));
+        channel.writeInbound(LastHttpContent.EMPTY_LAST_CONTENT);
+        assertEquals(2, handler.firstBytes);
+    }
+
+    @Test
+    public void offloadedSleepsRunConcurrently() throws Exception {
+        int connections = 64;
+        int sleepTime = 200;
+        HandlerArgs handlerArgs = new HandlerArgs();
+        handlerArgs.setSleepMode(SleepMode.OFFLOAD);
+        handlerArgs.setSleepTime(sleepTime);
+        handlerArgs.setPayloadSize(16);
+        TestHandler handler = new TestHandler();
+        handler.init(handlerArgs, null);
+
+        // A single event loop serves all connections
+        EventLoopGroup group = new DefaultEventLoopGroup(1);
+        try {
+            LocalAddress address = new LocalAddress("offload");
+            new ServerBootstrap().group(group).channel(LocalServerChannel.class)
+                    .childHandler(new ChannelInitializer<Channel>() {
+                        @Override
+                        protected void initChannel(Channel ch) {
+                            ch.pipeline().addLast(new HttpServerCodec(), new HttpObjectAggregator(1024),
+                                    new PipeliningHandler(), handler);
+                        }
+                    }).bind(address).sync();
+            CountDownLatch responses = new CountDownLatch(connections);
+            Bootstrap client = new Bootstrap().group(group).channel(LocalChannel.class)
+                    .handler(new ChannelInitializer<Channel>() {
+                        @Override
+                        protected void initChannel(Channel ch) {
+                            ch.pipeline().addLast(new HttpClientCodec(), new HttpObjectAggregator(1024),
+                                    new SimpleChannelInboundHandler<FullHttpResponse>() {
+                                        @Override
+                                        protected void channelRead0(ChannelHandlerContext ctx, FullHttpResponse msg) {
+                                            responses.countDown();
+                                        }
+                                    });
+                        }
+                    });
+            List<Channel> channels = new ArrayList<>(connections);
+            for (int i = 0; i < connections; i++) {
+                channels.add(client.connect(address).sync().channel());
+            }
+
+            long start = System.nanoTime();
+            for (Channel channel : channels) {
+                channel.writeAndFlush(new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/"));
+            }
+            assertTrue(responses.await(10, TimeUnit.SECONDS));
+            // One sleep at a time per core would take several sleep times
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            assertTrue("Elapsed: " + elapsedMillis + "ms", elapsedMillis < 3 * sleepTime);
+        } finally {
+            group.shutdownGracefully().sync();
+        }
+    }
+
+    private static ByteBuf innermost(ByteBuf buf) {
+        while (buf.unwrap() != null) {
+            buf = buf.unwrap();
+        }
+        return buf;
+    }
+
+    private long activeAllocations() {
+        return allocatorMetrics.getActiveAllocations(MemoryType.DIRECT)
+                + allocatorMetrics.getActiveAllocations(MemoryType.HEAP);
+    }
+
+    private static final class TestHandler extends AbstractNettyHttpServerHandler<NettyHttpServer> {
+
+        private int firstBytes;
+
+        @Override
+        public void init(HandlerArgs handlerArgs, NettyHttpServer httpServer) {
+            setHandlerArgs(handlerArgs);
+        }
+
+        @Override
+        protected long requestStart(String method, String uri) {
+            return 0;
+        }
+
+        @Override
+        protected void requestEnd(String method, String uri, int statusCode, long startNanos, int weight) {
+        }
+
+        @Override
+        protected long sleepStart() {
+            return 0;
+        }
+
+        @Override
+        protected void sleepEnd(long startNanos, int weight) {
+        }
+
+        @Override
+        protected void requestSize(int size, int weight) {
+        }
+
+        @Override
+        protected void responseSize(int size, int weight) {
+        }
+
+        @Override
+        protected void compressedResponseSize(int size, int weight) {
+        }
+
+        @Override
+        protected void firstByte(long startNanos, int weight) {
+            firstBytes++;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.dropwizard;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Timer;
+import com.github.chrishantha.netty.metrics.base.connection.ConnectionMetrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connection metrics recorded with a Dropwizard timer and histogram.
+ */
+class DropwizardConnectionMetrics extends ConnectionMetrics {
+
+    private final Timer lifetimeTimer;
+
+    private final Histogram requestsHistogram;
+
+    DropwizardConnectionMetrics(Timer lifetimeTimer, Histogram requestsHistogram) {
+        this.lifetimeTimer = lifetimeTimer;
+        this.requestsHistogram = requestsHistogram;
+    }
+
+    @Override
+    protected void recordConnection(long lifetimeNanos, long requests) {
+        lifetimeTimer.update(lifetimeNanos, TimeUnit.NANOSECONDS);
+        requestsHistogram.update(requests);
+    }
+}
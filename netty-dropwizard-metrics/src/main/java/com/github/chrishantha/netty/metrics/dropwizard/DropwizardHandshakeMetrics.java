@@ -0,0 +1,38 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.dropwizard;
+
+import com.codahale.metrics.Timer;
+import com.github.chrishantha.netty.metrics.base.ssl.HandshakeMetrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TLS handshake metrics recorded with a Dropwizard timer.
+ */
+class DropwizardHandshakeMetrics extends HandshakeMetrics {
+
+    private final Timer latencyTimer;
+
+    DropwizardHandshakeMetrics(Timer latencyTimer) {
+        this.latencyTimer = latencyTimer;
+    }
+
+    @Override
+    protected void recordHandshake(long latencyNanos) {
+        latencyTimer.update(latencyNanos, TimeUnit.NANOSECONDS);
+    }
+}
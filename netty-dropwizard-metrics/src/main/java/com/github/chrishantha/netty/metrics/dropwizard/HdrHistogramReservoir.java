@@ -0,0 +1,154 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.dropwizard;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramIterationValue;
+import org.HdrHistogram.Recorder;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A reservoir recording all values with an HdrHistogram {@link Recorder}.
+ * <p>
+ * Updates are wait-free. The recorded values are moved to a new interval snapshot on the first read and then at
+ * most once per window, so that every reader within a window gets the same snapshot, regardless of how many
+ * reporters or scrapes read it.
+ */
+public class HdrHistogramReservoir implements Reservoir {
+
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+
+    private final Clock clock;
+
+    private final long windowNanos;
+
+    private Histogram intervalHistogram;
+
+    private HistogramSnapshot snapshot;
+
+    private long lastSwapTick;
+
+    private volatile int size;
+
+    /**
+     * @param window Window in seconds, after which a read takes a new interval snapshot
+     */
+    public HdrHistogramReservoir(int window) {
+        this(window, Clock.defaultClock());
+    }
+
+    public HdrHistogramReservoir(int window, Clock clock) {
+        this.clock = clock;
+        this.windowNanos = TimeUnit.SECONDS.toNanos(window);
+    }
+
+    /**
+     * @return Number of values in the current interval snapshot
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void update(long value) {
+        recorder.recordValue(value);
+    }
+
+    @Override
+    public synchronized Snapshot getSnapshot() {
+        long tick = clock.getTick();
+        if (snapshot == null || tick - lastSwapTick >= windowNanos) {
+            lastSwapTick = tick;
+            intervalHistogram = recorder.getIntervalHistogram(intervalHistogram);
+            Histogram histogram = intervalHistogram.copy();
+            size = (int) Math.min(Integer.MAX_VALUE, histogram.getTotalCount());
+            snapshot = new HistogramSnapshot(histogram);
+        }
+        return snapshot;
+    }
+
+    private static final class HistogramSnapshot extends Snapshot {
+
+        private final Histogram histogram;
+
+        private HistogramSnapshot(Histogram histogram) {
+            this.histogram = histogram;
+        }
+
+        @Override
+        public double getValue(double quantile) {
+            return histogram.getValueAtPercentile(quantile * 100);
+        }
+
+        @Override
+        public long[] getValues() {
+            long[] values = new long[size()];
+            int i = 0;
+            for (HistogramIterationValue value : histogram.recordedValues()) {
+                long count = value.getCountAtValueIteratedTo();
+                for (long j = 0; j < count && i < values.length; j++) {
+                    values[i++] = value.getValueIteratedTo();
+                }
+            }
+            return values;
+        }
+
+        @Override
+        public int size() {
+            return (int) Math.min(Integer.MAX_VALUE, histogram.getTotalCount());
+        }
+
+        @Override
+        public long getMax() {
+            return histogram.getMaxValue();
+        }
+
+        @Override
+        public double getMean() {
+            return histogram.getMean();
+        }
+
+        @Override
+        public long getMin() {
+            return histogram.getMinValue();
+        }
+
+        @Override
+        public double getStdDev() {
+            return histogram.getStdDeviation();
+        }
+
+        @Override
+        public void dump(OutputStream output) {
+            try (PrintWriter out = new PrintWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8))) {
+                for (long value : getValues()) {
+                    out.printf("%d%n", value);
+                }
+            }
+        }
+    }
+}
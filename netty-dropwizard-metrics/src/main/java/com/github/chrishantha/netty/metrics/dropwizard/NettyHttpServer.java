@@ -15,21 +15,41 @@
  */
 package com.github.chrishantha.netty.metrics.dropwizard;
 
+import com.beust.jcommander.Parameter;
 import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
 import com.codahale.metrics.Histogram;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
 import com.github.chrishantha.netty.metrics.base.AbstractNettyHttpServer;
+import com.github.chrishantha.netty.metrics.base.allocator.AllocatorMetrics;
+import com.github.chrishantha.netty.metrics.base.allocator.AllocatorMetrics.MemoryType;
 import com.github.chrishantha.netty.metrics.base.args.ServerArgs;
+import com.github.chrishantha.netty.metrics.base.backpressure.BackpressureMetrics;
+import com.github.chrishantha.netty.metrics.base.connection.ConnectionMetrics;
+import com.github.chrishantha.netty.metrics.base.eventloop.EventLoopProbe;
+import com.github.chrishantha.netty.metrics.base.sampling.RequestSampler;
+import com.github.chrishantha.netty.metrics.base.ssl.HandshakeMetrics;
+import com.github.chrishantha.netty.metrics.base.status.StatusCodeTable;
 import io.prometheus.client.CollectorRegistry;
 import io.prometheus.client.dropwizard.DropwizardExports;
 import io.prometheus.client.exporter.HTTPServer;
+import io.prometheus.client.exporter.common.TextFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Netty HTTP Server recording metrics with Dropwizard Metrics.
+ * <p>
+ * Dropwizard metrics do not have labels. Responses are metered by status code in {@code responses.<code>} and request
+ * latencies are timed by status class in {@code requests_latency.<class>}. Responses with a status code below 500 are
+ * also marked in {@code success_rate} and the others in {@code error_rate}.
+ */
 public class NettyHttpServer extends AbstractNettyHttpServer {
 
     private static final Logger logger = LoggerFactory.getLogger(NettyHttpServer.class);
@@ -38,13 +58,32 @@ public class NettyHttpServer extends AbstractNettyHttpServer {
 
     private static final MetricRegistry registry = new MetricRegistry();
 
+    @Parameter(names = "--reservoir", description = "Reservoir used for timers and histograms. One of exponential,"
+            + " sliding-window, sliding-time-window-array, uniform and hdr", converter = ReservoirType.Converter.class)
+    private ReservoirType reservoirType = ReservoirType.EXPONENTIAL;
+
+    @Parameter(names = "--reservoir-size", description = "Number of values kept by sampling reservoirs")
+    private int reservoirSize = 1028;
+
+    @Parameter(names = "--reservoir-window", description = "Window in seconds used by time window and hdr reservoirs")
+    private int reservoirWindow = 60;
+
     private Counter totalRequestCounter;
     private Counter inprogressRequestsCounter;
     private Meter successRate;
-    private Timer requestLatencyTimer;
+    private Meter errorRate;
+    private StatusCodeTable<Timer> requestLatencyTimers;
+    private StatusCodeTable<StatusMetrics> statusMetrics;
     private Timer sleepTimer;
+    private Timer timeToFirstByteTimer;
     private Histogram requestSizeHistogram;
     private Histogram responseSizeHistogram;
+    private Histogram compressedResponseSizeHistogram;
+
+    /**
+     * Weight of each request recorded in the sampled timers and histograms
+     */
+    private volatile int sampleRate = 1;
 
     @Override
     public void init(ServerArgs serverArgs) {
@@ -53,21 +92,125 @@ public class NettyHttpServer extends AbstractNettyHttpServer {
 
         new DropwizardExports(registry).register(CollectorRegistry.defaultRegistry);
 
-        totalRequestCounter = registry.counter("requests_total");
-        inprogressRequestsCounter = registry.counter("inprogress_requests");
-        successRate = registry.meter("success_rate");
-        requestLatencyTimer = registry.timer("requests_latency");
-        sleepTimer = registry.timer("sleep_time");
-        requestSizeHistogram = registry.histogram("request_size");
-        responseSizeHistogram = registry.histogram("response_size");
+        // Counters and meters are striped by event loop and summed when the metrics are collected
+        totalRequestCounter = registry.counter("requests_total", StripedCounterMetric::new);
+        inprogressRequestsCounter = registry.counter("inprogress_requests", StripedCounterMetric::new);
+        successRate = registry.meter("success_rate", StripedMeter::new);
+        errorRate = registry.meter("error_rate", StripedMeter::new);
+        logger.info("Reservoir: {}", reservoirType);
+        requestLatencyTimers = StatusCodeTable.byClass(code -> registry.timer(
+                MetricRegistry.name("requests_latency", StatusCodeTable.statusClass(code)), this::newSampledTimer));
+        statusMetrics = StatusCodeTable.byCode(code -> new StatusMetrics(
+                registry.meter(MetricRegistry.name("responses", StatusCodeTable.code(code)), StripedMeter::new),
+                code > 0 && code < 500 ? successRate : errorRate, requestLatencyTimers.get(code)));
+        sleepTimer = registry.timer("sleep_time", this::newSampledTimer);
+        timeToFirstByteTimer = registry.timer("time_to_first_byte", this::newSampledTimer);
+        requestSizeHistogram = registry.histogram("request_size", this::newSampledHistogram);
+        responseSizeHistogram = registry.histogram("response_size", this::newSampledHistogram);
+        compressedResponseSizeHistogram = registry.histogram("compressed_response_size", this::newSampledHistogram);
 
         //TODO: JVM Gauges?
 
-        try {
-            new HTTPServer(serverArgs.getMetricsPort(), true);
-        } catch (IOException e) {
-            throw new IllegalStateException(e);
+        if (!serverArgs.isNettyMetricsServer()) {
+            try {
+                new HTTPServer(serverArgs.getMetricsPort(), true);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    @Override
+    protected void writeMetrics(Writer writer) throws IOException {
+        TextFormat.write004(writer, CollectorRegistry.defaultRegistry.metricFamilySamples());
+    }
+
+    @Override
+    protected void registerEventLoopMetrics(List<EventLoopProbe> probes) {
+        // Dropwizard metrics do not have labels. The group and the index are included in the names.
+        for (EventLoopProbe probe : probes) {
+            String prefix = MetricRegistry.name("event_loop", probe.getGroup(), probe.getIndex());
+            registry.register(MetricRegistry.name(prefix, "pending_tasks"), (Gauge<Integer>) probe::getPendingTasks);
+            registry.register(MetricRegistry.name(prefix, "scheduled_tasks"),
+                    (Gauge<Integer>) probe::getScheduledTasks);
+            registry.register(MetricRegistry.name(prefix, "lag_seconds"),
+                    (Gauge<Double>) () -> probe.getLagNanos() / 1e9);
+            registry.register(MetricRegistry.name(prefix, "busy_ratio"), (Gauge<Double>) probe::getBusyRatio);
+        }
+    }
+
+    @Override
+    protected void registerAllocatorMetrics(AllocatorMetrics allocatorMetrics) {
+        for (MemoryType type : MemoryType.values()) {
+            String prefix = MetricRegistry.name("allocator", type.toString());
+            registry.register(MetricRegistry.name(prefix, "used_memory_bytes"),
+                    (Gauge<Long>) () -> allocatorMetrics.getUsedMemory(type));
+            registry.register(MetricRegistry.name(prefix, "arenas"),
+                    (Gauge<Integer>) () -> allocatorMetrics.getArenas(type));
+            registry.register(MetricRegistry.name(prefix, "active_allocations"),
+                    (Gauge<Long>) () -> allocatorMetrics.getActiveAllocations(type));
+            registry.register(MetricRegistry.name(prefix, "chunks"),
+                    (Gauge<Integer>) () -> allocatorMetrics.getChunks(type));
+            registry.register(MetricRegistry.name(prefix, "chunk_usage_ratio"),
+                    (Gauge<Double>) () -> allocatorMetrics.getChunkUsage(type));
         }
+        registry.register("allocator.thread_local_caches", (Gauge<Integer>) allocatorMetrics::getThreadLocalCaches);
+        registry.register("allocator.chunk_size_bytes", (Gauge<Integer>) allocatorMetrics::getChunkSize);
+    }
+
+    @Override
+    protected void registerBackpressureMetrics(BackpressureMetrics backpressureMetrics) {
+        registry.register("channels_unwritable", (Gauge<Long>) backpressureMetrics::getUnwritableChannels);
+        registry.register("channel_unwritable_total", (Gauge<Long>) backpressureMetrics::getUnwritableEvents);
+        registry.register("channel_unwritable_seconds_total",
+                (Gauge<Double>) () -> backpressureMetrics.getUnwritableNanos() / 1e9);
+        registry.register("pending_outbound_bytes", (Gauge<Long>) backpressureMetrics::getPendingOutboundBytes);
+    }
+
+    @Override
+    protected ConnectionMetrics newConnectionMetrics() {
+        DropwizardConnectionMetrics connectionMetrics = new DropwizardConnectionMetrics(
+                registry.timer("connection_lifetime", this::newTimer),
+                registry.histogram("connection_requests", this::newHistogram));
+        registry.register("connections_active", (Gauge<Long>) connectionMetrics::getActiveConnections);
+        registry.register("connections_total", (Gauge<Long>) connectionMetrics::getTotalConnections);
+        registry.register("bytes_read_total", (Gauge<Long>) connectionMetrics::getBytesRead);
+        registry.register("bytes_written_total", (Gauge<Long>) connectionMetrics::getBytesWritten);
+        return connectionMetrics;
+    }
+
+    @Override
+    protected HandshakeMetrics newHandshakeMetrics() {
+        DropwizardHandshakeMetrics handshakeMetrics = new DropwizardHandshakeMetrics(
+                registry.timer("ssl_handshake_latency", this::newTimer));
+        registry.register("ssl_handshakes_total", (Gauge<Long>) handshakeMetrics::getHandshakes);
+        registry.register("ssl_handshakes_resumed_total", (Gauge<Long>) handshakeMetrics::getResumedHandshakes);
+        registry.register("ssl_handshake_failures_total", (Gauge<Long>) handshakeMetrics::getFailedHandshakes);
+        registry.register("ssl_resumption_ratio", (Gauge<Double>) handshakeMetrics::getResumptionRatio);
+        return handshakeMetrics;
+    }
+
+    @Override
+    protected void registerSamplingMetrics(RequestSampler requestSampler) {
+        sampleRate = requestSampler.getSampleRate();
+        registry.register("sample_rate", (Gauge<Integer>) requestSampler::getSampleRate);
+        registry.register("sampled_requests_total", (Gauge<Long>) requestSampler::getSampledRequests);
+    }
+
+    private Timer newTimer() {
+        return new Timer(reservoirType.newReservoir(reservoirSize, reservoirWindow));
+    }
+
+    private Histogram newHistogram() {
+        return new Histogram(reservoirType.newReservoir(reservoirSize, reservoirWindow));
+    }
+
+    private Timer newSampledTimer() {
+        return new SampledTimer(reservoirType.newReservoir(reservoirSize, reservoirWindow), () -> sampleRate);
+    }
+
+    private Histogram newSampledHistogram() {
+        return new SampledHistogram(reservoirType.newReservoir(reservoirSize, reservoirWindow), () -> sampleRate);
     }
 
     public Counter getTotalRequestCounter() {
@@ -78,18 +221,21 @@ public class NettyHttpServer extends AbstractNettyHttpServer {
         return inprogressRequestsCounter;
     }
 
-    public Meter getSuccessRate() {
-        return successRate;
-    }
-
-    public Timer getRequestLatencyTimer() {
-        return requestLatencyTimer;
+    /**
+     * Get the metrics updated for the responses with the given status code.
+     */
+    StatusMetrics getStatusMetrics(int statusCode) {
+        return statusMetrics.get(statusCode);
     }
 
     public Timer getSleepTimer() {
         return sleepTimer;
     }
 
+    public Timer getTimeToFirstByteTimer() {
+        return timeToFirstByteTimer;
+    }
+
     public Histogram getRequestSizeHistogram() {
         return requestSizeHistogram;
     }
@@ -97,4 +243,8 @@ public class NettyHttpServer extends AbstractNettyHttpServer {
     public Histogram getResponseSizeHistogram() {
         return responseSizeHistogram;
     }
+
+    public Histogram getCompressedResponseSizeHistogram() {
+        return compressedResponseSizeHistogram;
+    }
 }
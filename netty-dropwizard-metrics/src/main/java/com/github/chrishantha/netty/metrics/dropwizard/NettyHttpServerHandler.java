@@ -15,10 +15,11 @@
  */
 package com.github.chrishantha.netty.metrics.dropwizard;
 
-import com.codahale.metrics.Timer;
 import com.github.chrishantha.netty.metrics.base.AbstractNettyHttpServerHandler;
 import com.github.chrishantha.netty.metrics.base.args.HandlerArgs;
 
+import java.util.concurrent.TimeUnit;
+
 public class NettyHttpServerHandler extends AbstractNettyHttpServerHandler<NettyHttpServer> {
 
     private NettyHttpServer httpServer;
@@ -30,38 +31,50 @@ public class NettyHttpServerHandler extends AbstractNettyHttpServerHandler<Netty
     }
 
     @Override
-    protected Object requestStart(String method, String uri) {
+    protected long requestStart(String method, String uri) {
         httpServer.getTotalRequestCounter().inc();
         httpServer.getInprogressRequestsCounter().inc();
-        return httpServer.getRequestLatencyTimer().time();
+        return System.nanoTime();
     }
 
     @Override
-    protected void requestEnd(String method, String uri, int statusCode, Object object) {
+    protected void requestEnd(String method, String uri, int statusCode, long startNanos, int weight) {
         httpServer.getInprogressRequestsCounter().dec();
-        ((Timer.Context) object).stop();
-        httpServer.getSuccessRate().mark();
+        StatusMetrics statusMetrics = httpServer.getStatusMetrics(statusCode);
+        if (weight > 0) {
+            // The counts and rates are scaled by the weight when the metrics are read
+            statusMetrics.updateLatency(System.nanoTime() - startNanos);
+        }
+        statusMetrics.mark();
+    }
+
+    @Override
+    protected long sleepStart() {
+        return System.nanoTime();
     }
 
     @Override
-    protected Object sleepStart() {
-        return httpServer.getSleepTimer().time();
+    protected void sleepEnd(long startNanos, int weight) {
+        httpServer.getSleepTimer().update(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
     }
 
     @Override
-    protected void sleepEnd(Object object) {
-        ((Timer.Context) object).stop();
+    protected void firstByte(long startNanos, int weight) {
+        httpServer.getTimeToFirstByteTimer().update(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
     }
 
     @Override
-    protected void requestSize(int size) {
+    protected void requestSize(int size, int weight) {
         httpServer.getRequestSizeHistogram().update(size);
     }
 
     @Override
-    protected void responseSize(int size) {
+    protected void responseSize(int size, int weight) {
         httpServer.getResponseSizeHistogram().update(size);
     }
 
-
+    @Override
+    protected void compressedResponseSize(int size, int weight) {
+        httpServer.getCompressedResponseSizeHistogram().update(size);
+    }
 }
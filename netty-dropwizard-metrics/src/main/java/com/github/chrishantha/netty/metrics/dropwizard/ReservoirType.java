@@ -0,0 +1,114 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.dropwizard;
+
+import com.beust.jcommander.IStringConverter;
+import com.beust.jcommander.ParameterException;
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.SlidingTimeWindowArrayReservoir;
+import com.codahale.metrics.SlidingWindowReservoir;
+import com.codahale.metrics.UniformReservoir;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dropwizard reservoirs, which can be used for timers and histograms.
+ */
+public enum ReservoirType {
+
+    /**
+     * The default Dropwizard reservoir. Takes a lock when rescaling.
+     */
+    EXPONENTIAL {
+        @Override
+        public Reservoir newReservoir(int size, int window) {
+            return new ExponentiallyDecayingReservoir(size, 0.015);
+        }
+    },
+
+    /**
+     * Keeps the last values. Updates are synchronized.
+     */
+    SLIDING_WINDOW {
+        @Override
+        public Reservoir newReservoir(int size, int window) {
+            return new SlidingWindowReservoir(size);
+        }
+    },
+
+    /**
+     * Keeps the values recorded within the window. Updates are lock-free, but memory grows with the request rate.
+     */
+    SLIDING_TIME_WINDOW_ARRAY {
+        @Override
+        public Reservoir newReservoir(int size, int window) {
+            return new SlidingTimeWindowArrayReservoir(window, TimeUnit.SECONDS);
+        }
+    },
+
+    /**
+     * Keeps a uniform sample of all values. Updates are lock-free.
+     */
+    UNIFORM {
+        @Override
+        public Reservoir newReservoir(int size, int window) {
+            return new UniformReservoir(size);
+        }
+    },
+
+    /**
+     * Records all values with HdrHistogram. Updates are wait-free. Snapshots hold the values of an interval, which is
+     * at least a window long.
+     */
+    HDR {
+        @Override
+        public Reservoir newReservoir(int size, int window) {
+            return new HdrHistogramReservoir(window);
+        }
+    };
+
+    /**
+     * Create a new reservoir.
+     *
+     * @param size   Number of values kept by sampling reservoirs
+     * @param window Window in seconds used by time window and hdr reservoirs
+     * @return A new reservoir
+     */
+    public abstract Reservoir newReservoir(int size, int window);
+
+    @Override
+    public String toString() {
+        return name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+
+    /**
+     * Converts option values like {@code sliding-window}.
+     */
+    public static class Converter implements IStringConverter<ReservoirType> {
+
+        @Override
+        public ReservoirType convert(String value) {
+            for (ReservoirType reservoirType : values()) {
+                if (reservoirType.toString().equalsIgnoreCase(value)) {
+                    return reservoirType;
+                }
+            }
+            throw new ParameterException("Invalid reservoir: " + value);
+        }
+    }
+}
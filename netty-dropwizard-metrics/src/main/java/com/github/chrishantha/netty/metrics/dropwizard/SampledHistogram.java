@@ -0,0 +1,41 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.dropwizard;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Reservoir;
+
+import java.util.function.IntSupplier;
+
+/**
+ * A Dropwizard {@link Histogram} recording only the sampled requests.
+ * <p>
+ * The count is scaled by the sample rate when it is read. The snapshot is not changed by a uniform weight.
+ */
+public class SampledHistogram extends Histogram {
+
+    private final IntSupplier sampleRate;
+
+    public SampledHistogram(Reservoir reservoir, IntSupplier sampleRate) {
+        super(reservoir);
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    public long getCount() {
+        return super.getCount() * sampleRate.getAsInt();
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.dropwizard;
+
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Timer;
+
+import java.util.function.IntSupplier;
+
+/**
+ * A Dropwizard {@link Timer} recording only the sampled requests.
+ * <p>
+ * Every sampled request has the same weight, the sample rate. The count and the rates are therefore scaled by the
+ * sample rate when they are read. The snapshot is not changed by a uniform weight.
+ */
+public class SampledTimer extends Timer {
+
+    private final IntSupplier sampleRate;
+
+    public SampledTimer(Reservoir reservoir, IntSupplier sampleRate) {
+        super(reservoir);
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    public long getCount() {
+        return super.getCount() * sampleRate.getAsInt();
+    }
+
+    @Override
+    public double getFifteenMinuteRate() {
+        return super.getFifteenMinuteRate() * sampleRate.getAsInt();
+    }
+
+    @Override
+    public double getFiveMinuteRate() {
+        return super.getFiveMinuteRate() * sampleRate.getAsInt();
+    }
+
+    @Override
+    public double getMeanRate() {
+        return super.getMeanRate() * sampleRate.getAsInt();
+    }
+
+    @Override
+    public double getOneMinuteRate() {
+        return super.getOneMinuteRate() * sampleRate.getAsInt();
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.dropwizard;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metrics updated for the responses with a status code.
+ * <p>
+ * The response meter is specific to the status code. The outcome meter and the latency timer are shared by the status
+ * codes of the same outcome and status class.
+ */
+final class StatusMetrics {
+
+    private final Meter responses;
+
+    private final Meter outcome;
+
+    private final Timer latency;
+
+    StatusMetrics(Meter responses, Meter outcome, Timer latency) {
+        this.responses = responses;
+        this.outcome = outcome;
+        this.latency = latency;
+    }
+
+    void mark() {
+        responses.mark();
+        outcome.mark();
+    }
+
+    void updateLatency(long latencyNanos) {
+        latency.update(latencyNanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.dropwizard;
+
+import com.codahale.metrics.Counter;
+import com.github.chrishantha.netty.metrics.base.striped.StripedCounter;
+
+/**
+ * A Dropwizard {@link Counter} backed by a {@link StripedCounter}.
+ */
+public class StripedCounterMetric extends Counter {
+
+    private final StripedCounter count = new StripedCounter();
+
+    @Override
+    public void inc(long n) {
+        count.add(n);
+    }
+
+    @Override
+    public void dec(long n) {
+        count.add(-n);
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.dropwizard;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.EWMA;
+import com.codahale.metrics.Meter;
+import com.github.chrishantha.netty.metrics.base.striped.StripedCounter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A Dropwizard {@link Meter} backed by a {@link StripedCounter}.
+ * <p>
+ * Marking only updates the counter of the current thread. The moving averages are updated when the rates are read,
+ * with the events counted since the previous read spread evenly over the elapsed ticks.
+ */
+public class StripedMeter extends Meter {
+
+    private static final long TICK_INTERVAL = TimeUnit.SECONDS.toNanos(5);
+
+    private final StripedCounter count = new StripedCounter();
+    private final EWMA m1Rate = EWMA.oneMinuteEWMA();
+    private final EWMA m5Rate = EWMA.fiveMinuteEWMA();
+    private final EWMA m15Rate = EWMA.fifteenMinuteEWMA();
+
+    private final Clock clock;
+    private final long startTime;
+    private long lastTick;
+    private long lastCount;
+
+    public StripedMeter() {
+        this(Clock.defaultClock());
+    }
+
+    public StripedMeter(Clock clock) {
+        this.clock = clock;
+        this.startTime = clock.getTick();
+        this.lastTick = startTime;
+    }
+
+    @Override
+    public void mark(long n) {
+        count.add(n);
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public double getFifteenMinuteRate() {
+        tickIfNecessary();
+        return m15Rate.getRate(TimeUnit.SECONDS);
+    }
+
+    @Override
+    public double getFiveMinuteRate() {
+        tickIfNecessary();
+        return m5Rate.getRate(TimeUnit.SECONDS);
+    }
+
+    @Override
+    public double getMeanRate() {
+        long count = getCount();
+        if (count == 0) {
+            return 0.0;
+        }
+        double elapsed = clock.getTick() - startTime;
+        return count / elapsed * TimeUnit.SECONDS.toNanos(1);
+    }
+
+    @Override
+    public double getOneMinuteRate() {
+        tickIfNecessary();
+        return m1Rate.getRate(TimeUnit.SECONDS);
+    }
+
+    private synchronized void tickIfNecessary() {
+        long newTick = clock.getTick();
+        long age = newTick - lastTick;
+        if (age < TICK_INTERVAL) {
+            return;
+        }
+        long requiredTicks = age / TICK_INTERVAL;
+        lastTick = newTick - age % TICK_INTERVAL;
+        long newCount = getCount();
+        long delta = newCount - lastCount;
+        lastCount = newCount;
+        for (long i = 0; i < requiredTicks; i++) {
+            long n = delta / requiredTicks + (i < delta % requiredTicks ? 1 : 0);
+            m1Rate.update(n);
+            m5Rate.update(n);
+            m15Rate.update(n);
+            m1Rate.tick();
+            m5Rate.tick();
+            m15Rate.tick();
+        }
+    }
+}
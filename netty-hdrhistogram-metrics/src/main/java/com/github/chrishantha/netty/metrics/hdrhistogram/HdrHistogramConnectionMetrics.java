@@ -0,0 +1,72 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.hdrhistogram;
+
+import com.github.chrishantha.netty.metrics.base.connection.ConnectionMetrics;
+import io.prometheus.client.Collector;
+import io.prometheus.client.CounterMetricFamily;
+import io.prometheus.client.GaugeMetricFamily;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Connection metrics recorded with {@link RecorderMetric}s.
+ */
+class HdrHistogramConnectionMetrics extends ConnectionMetrics {
+
+    private static final double[] LIFETIME_BUCKETS = {.01, .1, 1, 5, 10, 30, 60, 300, 600, 1800, 3600};
+
+    private static final double[] REQUESTS_BUCKETS = {1, 2, 5, 10, 50, 100, 500, 1000, 5000, 10000};
+
+    private final RecorderMetric lifetime;
+
+    private final RecorderMetric requests;
+
+    HdrHistogramConnectionMetrics(int significantDigits) {
+        lifetime = new RecorderMetric(significantDigits, Collector.NANOSECONDS_PER_SECOND);
+        requests = new RecorderMetric(significantDigits, 1);
+        new ConnectionCollector().register();
+    }
+
+    @Override
+    protected void recordConnection(long lifetimeNanos, long requests) {
+        this.lifetime.record(lifetimeNanos);
+        this.requests.record(requests);
+    }
+
+    void swapInterval() {
+        lifetime.swapInterval();
+        requests.swapInterval();
+    }
+
+    private class ConnectionCollector extends Collector {
+
+        @Override
+        public List<MetricFamilySamples> collect() {
+            List<MetricFamilySamples> mfs = new ArrayList<>(6);
+            mfs.add(new GaugeMetricFamily("connections_active", "Active connections", getActiveConnections()));
+            mfs.add(new CounterMetricFamily("connections_total", "Accepted connections", getTotalConnections()));
+            mfs.add(new CounterMetricFamily("bytes_read_total", "Bytes read from connections", getBytesRead()));
+            mfs.add(new CounterMetricFamily("bytes_written_total", "Bytes written to connections",
+                    getBytesWritten()));
+            mfs.add(lifetime.histogram("connection_lifetime_seconds", "Connection lifetime in seconds.",
+                    LIFETIME_BUCKETS));
+            mfs.add(requests.histogram("connection_requests", "Requests per connection", REQUESTS_BUCKETS));
+            return mfs;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.hdrhistogram;
+
+import com.github.chrishantha.netty.metrics.base.ssl.HandshakeMetrics;
+import io.prometheus.client.Collector;
+import io.prometheus.client.CounterMetricFamily;
+import io.prometheus.client.GaugeMetricFamily;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * TLS handshake metrics recorded with a {@link RecorderMetric}.
+ */
+class HdrHistogramHandshakeMetrics extends HandshakeMetrics {
+
+    private static final double[] LATENCY_BUCKETS = {.001, .0025, .005, .01, .025, .05, .1, .25, .5, 1};
+
+    private final RecorderMetric latency;
+
+    HdrHistogramHandshakeMetrics(int significantDigits) {
+        latency = new RecorderMetric(significantDigits, Collector.NANOSECONDS_PER_SECOND);
+        new HandshakeCollector().register();
+    }
+
+    @Override
+    protected void recordHandshake(long latencyNanos) {
+        latency.record(latencyNanos);
+    }
+
+    void swapInterval() {
+        latency.swapInterval();
+    }
+
+    private class HandshakeCollector extends Collector {
+
+        @Override
+        public List<MetricFamilySamples> collect() {
+            List<MetricFamilySamples> mfs = new ArrayList<>(5);
+            mfs.add(new CounterMetricFamily("ssl_handshakes_total", "Completed SSL handshakes", getHandshakes()));
+            mfs.add(new CounterMetricFamily("ssl_handshakes_resumed_total", "Resumed SSL handshakes",
+                    getResumedHandshakes()));
+            mfs.add(new CounterMetricFamily("ssl_handshake_failures_total", "Failed SSL handshakes",
+                    getFailedHandshakes()));
+            mfs.add(new GaugeMetricFamily("ssl_resumption_ratio", "Ratio of resumed SSL handshakes",
+                    getResumptionRatio()));
+            mfs.add(latency.histogram("ssl_handshake_latency_seconds", "SSL handshake latency in seconds.",
+                    LATENCY_BUCKETS));
+            return mfs;
+        }
+    }
+}
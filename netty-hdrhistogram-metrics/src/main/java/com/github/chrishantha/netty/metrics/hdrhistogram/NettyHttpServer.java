@@ -0,0 +1,246 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.hdrhistogram;
+
+import com.beust.jcommander.Parameter;
+import com.github.chrishantha.netty.metrics.base.AbstractNettyHttpServer;
+import com.github.chrishantha.netty.metrics.base.allocator.AllocatorMetrics;
+import com.github.chrishantha.netty.metrics.base.args.ServerArgs;
+import com.github.chrishantha.netty.metrics.base.backpressure.BackpressureMetrics;
+import com.github.chrishantha.netty.metrics.base.connection.ConnectionMetrics;
+import com.github.chrishantha.netty.metrics.base.eventloop.EventLoopProbe;
+import com.github.chrishantha.netty.metrics.base.sampling.RequestSampler;
+import com.github.chrishantha.netty.metrics.base.ssl.HandshakeMetrics;
+import com.github.chrishantha.netty.metrics.base.status.StatusCodeTable;
+import com.github.chrishantha.netty.metrics.base.striped.StripedCounter;
+import com.github.chrishantha.netty.metrics.prometheus.collectors.AllocatorCollector;
+import com.github.chrishantha.netty.metrics.prometheus.collectors.BackpressureCollector;
+import com.github.chrishantha.netty.metrics.prometheus.collectors.EventLoopCollector;
+import com.github.chrishantha.netty.metrics.prometheus.collectors.SamplingCollector;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.prometheus.client.Collector;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.exporter.HTTPServer;
+import io.prometheus.client.exporter.common.TextFormat;
+import io.prometheus.client.hotspot.DefaultExports;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Netty HTTP Server recording metrics with HdrHistogram.
+ * <p>
+ * Counters are {@link StripedCounter}s and the latencies and sizes are recorded with {@link RecorderMetric}s. Both are
+ * updated by each event loop without contention and merged when the metrics are collected. The metrics are exported
+ * in the Prometheus format.
+ * <p>
+ * Responses are counted by status code and request latencies are recorded by status class. A recorder for each status
+ * code would multiply the per-thread histograms by the number of status codes.
+ */
+public class NettyHttpServer extends AbstractNettyHttpServer {
+
+    private static final short OFFSET = 3;
+
+    private static final double[] LATENCY_BUCKETS = {
+            .005, .01, .025, .05, .075, .1, .25, .5, .75, 1, 2.5, 5, 7.5, 10};
+
+    @Parameter(names = "--significant-digits",
+            description = "Number of significant decimal digits recorded by the histograms. From 0 to 5")
+    private int significantDigits = 2;
+
+    @Parameter(names = "--interval", description = "Interval in seconds used for the summary quantiles")
+    private int interval = 10;
+
+    private final StripedCounter totalRequestCounter = new StripedCounter();
+    private final StripedCounter inprogressRequests = new StripedCounter();
+    private final StatusCodeTable<StripedCounter> responseCounters =
+            StatusCodeTable.byCode(code -> new StripedCounter());
+
+    private StatusCodeTable<RecorderMetric> requestLatencies;
+    private RecorderMetric sleepTime;
+    private RecorderMetric timeToFirstByte;
+    private RecorderMetric requestSize;
+    private RecorderMetric responseSize;
+    private RecorderMetric compressedResponseSize;
+
+    private ScheduledExecutorService intervalExecutor;
+
+    @Override
+    public void init(ServerArgs serverArgs) {
+        serverArgs.setPort(serverArgs.getPort() + OFFSET);
+        serverArgs.setMetricsPort(serverArgs.getMetricsPort() + OFFSET);
+
+        requestLatencies = StatusCodeTable.byClass(
+                code -> new RecorderMetric(significantDigits, Collector.NANOSECONDS_PER_SECOND));
+        sleepTime = new RecorderMetric(significantDigits, Collector.NANOSECONDS_PER_SECOND);
+        timeToFirstByte = new RecorderMetric(significantDigits, Collector.NANOSECONDS_PER_SECOND);
+        requestSize = new RecorderMetric(significantDigits, 1);
+        responseSize = new RecorderMetric(significantDigits, 1);
+        compressedResponseSize = new RecorderMetric(significantDigits, 1);
+
+        intervalExecutor = Executors.newSingleThreadScheduledExecutor(
+                new DefaultThreadFactory("hdrhistogram-interval", true));
+        intervalExecutor.scheduleAtFixedRate(() -> {
+            requestLatencies.forEach((latency, code) -> latency.swapInterval());
+            sleepTime.swapInterval();
+            timeToFirstByte.swapInterval();
+            requestSize.swapInterval();
+            responseSize.swapInterval();
+            compressedResponseSize.swapInterval();
+        }, interval, interval, TimeUnit.SECONDS);
+
+        new MetricsCollector().register();
+        DefaultExports.initialize();
+
+        if (!serverArgs.isNettyMetricsServer()) {
+            try {
+                new HTTPServer(serverArgs.getMetricsPort(), true);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    @Override
+    protected void writeMetrics(Writer writer) throws IOException {
+        TextFormat.write004(writer, CollectorRegistry.defaultRegistry.metricFamilySamples());
+    }
+
+    @Override
+    protected void registerEventLoopMetrics(List<EventLoopProbe> probes) {
+        new EventLoopCollector(probes).register();
+    }
+
+    @Override
+    protected void registerAllocatorMetrics(AllocatorMetrics allocatorMetrics) {
+        new AllocatorCollector(allocatorMetrics).register();
+    }
+
+    @Override
+    protected void registerBackpressureMetrics(BackpressureMetrics backpressureMetrics) {
+        new BackpressureCollector(backpressureMetrics).register();
+    }
+
+    @Override
+    protected ConnectionMetrics newConnectionMetrics() {
+        HdrHistogramConnectionMetrics connectionMetrics = new HdrHistogramConnectionMetrics(significantDigits);
+        intervalExecutor.scheduleAtFixedRate(connectionMetrics::swapInterval, interval, interval, TimeUnit.SECONDS);
+        return connectionMetrics;
+    }
+
+    @Override
+    protected HandshakeMetrics newHandshakeMetrics() {
+        HdrHistogramHandshakeMetrics handshakeMetrics = new HdrHistogramHandshakeMetrics(significantDigits);
+        intervalExecutor.scheduleAtFixedRate(handshakeMetrics::swapInterval, interval, interval, TimeUnit.SECONDS);
+        return handshakeMetrics;
+    }
+
+    @Override
+    protected void registerSamplingMetrics(RequestSampler requestSampler) {
+        new SamplingCollector(requestSampler).register();
+    }
+
+    StripedCounter getResponseCounter(int statusCode) {
+        return responseCounters.get(statusCode);
+    }
+
+    StripedCounter getTotalRequestCounter() {
+        return totalRequestCounter;
+    }
+
+    StripedCounter getInprogressRequests() {
+        return inprogressRequests;
+    }
+
+    /**
+     * Get the request latency recorder for the class of the given status code.
+     */
+    RecorderMetric getRequestLatency(int statusCode) {
+        return requestLatencies.get(statusCode);
+    }
+
+    RecorderMetric getSleepTime() {
+        return sleepTime;
+    }
+
+    RecorderMetric getTimeToFirstByte() {
+        return timeToFirstByte;
+    }
+
+    RecorderMetric getRequestSize() {
+        return requestSize;
+    }
+
+    RecorderMetric getResponseSize() {
+        return responseSize;
+    }
+
+    RecorderMetric getCompressedResponseSize() {
+        return compressedResponseSize;
+    }
+
+    /**
+     * Exports the metrics using the same names as the Prometheus backend.
+     */
+    private class MetricsCollector extends Collector {
+
+        @Override
+        public List<MetricFamilySamples> collect() {
+            List<MetricFamilySamples> mfs = new ArrayList<>();
+            mfs.add(sample("requests_total", "Requests total", Type.COUNTER, totalRequestCounter.sum()));
+            mfs.add(sample("inprogress_requests", "Inprogress Requests", Type.GAUGE, inprogressRequests.sum()));
+            List<MetricFamilySamples.Sample> latencyHistogramSamples = new ArrayList<>();
+            List<MetricFamilySamples.Sample> latencySummarySamples = new ArrayList<>();
+            List<String> classLabelNames = Collections.singletonList("class");
+            requestLatencies.forEach((latency, code) -> {
+                List<String> classLabelValues = Collections.singletonList(StatusCodeTable.statusClass(code));
+                latency.addHistogramSamples(latencyHistogramSamples, "requests_latency_seconds", classLabelNames,
+                        classLabelValues, LATENCY_BUCKETS);
+                latency.addSummarySamples(latencySummarySamples, "requests_latency", classLabelNames,
+                        classLabelValues);
+            });
+            mfs.add(new MetricFamilySamples("requests_latency_seconds", Type.HISTOGRAM, "Request latency in seconds.",
+                    latencyHistogramSamples));
+            mfs.add(new MetricFamilySamples("requests_latency", Type.SUMMARY, "Request latency",
+                    latencySummarySamples));
+            mfs.add(sleepTime.summary("sleep_time", "Sleep time"));
+            mfs.add(timeToFirstByte.summary("time_to_first_byte", "Time to first byte of streaming responses"));
+            mfs.add(requestSize.summary("request_size", "Request size"));
+            mfs.add(responseSize.summary("response_size", "Response size"));
+            mfs.add(compressedResponseSize.summary("compressed_response_size", "Compressed response size"));
+            List<MetricFamilySamples.Sample> responseSamples = new ArrayList<>();
+            List<String> statusLabelNames = Arrays.asList("code", "class");
+            responseCounters.forEach((counter, code) -> responseSamples.add(new MetricFamilySamples.Sample(
+                    "responses_total", statusLabelNames,
+                    Arrays.asList(StatusCodeTable.code(code), StatusCodeTable.statusClass(code)), counter.sum())));
+            mfs.add(new MetricFamilySamples("responses_total", Type.COUNTER, "Responses by status code",
+                    responseSamples));
+            return mfs;
+        }
+
+        private MetricFamilySamples sample(String name, String help, Type type, double value) {
+            return new MetricFamilySamples(name, type, help, Collections.singletonList(
+                    new MetricFamilySamples.Sample(name, Collections.emptyList(), Collections.emptyList(), value)));
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.hdrhistogram;
+
+import com.github.chrishantha.netty.metrics.base.AbstractNettyHttpServerHandler;
+import com.github.chrishantha.netty.metrics.base.args.HandlerArgs;
+
+public class NettyHttpServerHandler extends AbstractNettyHttpServerHandler<NettyHttpServer> {
+
+    private NettyHttpServer httpServer;
+
+    @Override
+    public void init(HandlerArgs handlerArgs, NettyHttpServer httpServer) {
+        setHandlerArgs(handlerArgs);
+        this.httpServer = httpServer;
+    }
+
+    @Override
+    protected long requestStart(String method, String uri) {
+        httpServer.getInprogressRequests().increment();
+        httpServer.getTotalRequestCounter().increment();
+        return System.nanoTime();
+    }
+
+    @Override
+    protected void requestEnd(String method, String uri, int statusCode, long startNanos, int weight) {
+        if (weight > 0) {
+            httpServer.getRequestLatency(statusCode).record(System.nanoTime() - startNanos, weight);
+        }
+        httpServer.getInprogressRequests().decrement();
+        httpServer.getResponseCounter(statusCode).increment();
+    }
+
+    @Override
+    protected long sleepStart() {
+        return System.nanoTime();
+    }
+
+    @Override
+    protected void sleepEnd(long startNanos, int weight) {
+        httpServer.getSleepTime().record(System.nanoTime() - startNanos, weight);
+    }
+
+    @Override
+    protected void firstByte(long startNanos, int weight) {
+        httpServer.getTimeToFirstByte().record(System.nanoTime() - startNanos, weight);
+    }
+
+    @Override
+    protected void requestSize(int size, int weight) {
+        httpServer.getRequestSize().record(size, weight);
+    }
+
+    @Override
+    protected void responseSize(int size, int weight) {
+        httpServer.getResponseSize().record(size, weight);
+    }
+
+    @Override
+    protected void compressedResponseSize(int size, int weight) {
+        httpServer.getCompressedResponseSize().record(size, weight);
+    }
+}
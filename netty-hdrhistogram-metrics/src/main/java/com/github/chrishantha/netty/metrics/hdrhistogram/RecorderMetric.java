@@ -0,0 +1,166 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.hdrhistogram;
+
+import io.netty.util.concurrent.FastThreadLocal;
+import io.prometheus.client.Collector;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.SingleWriterRecorder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A metric recorded with HdrHistogram.
+ * <p>
+ * Each thread records to its own {@link SingleWriterRecorder}, so that recording is wait-free and event loops do not
+ * contend on shared counts. Once per interval, the values recorded by all threads are merged into an interval
+ * histogram and added to a cumulative histogram, which is used for the histogram buckets, the count and the sum. The
+ * summary quantiles are calculated from the last interval.
+ */
+final class RecorderMetric {
+
+    private static final double[] QUANTILES = {0.5, 0.75, 0.9, 0.99, 0.999};
+
+    private final int significantDigits;
+
+    private final Queue<Stripe> stripes = new ConcurrentLinkedQueue<>();
+
+    private final FastThreadLocal<Stripe> threadStripe = new FastThreadLocal<Stripe>() {
+        @Override
+        protected Stripe initialValue() {
+            Stripe stripe = new Stripe(significantDigits);
+            stripes.add(stripe);
+            return stripe;
+        }
+    };
+
+    private final Histogram total;
+
+    /**
+     * Divisor to convert recorded values to the exported unit
+     */
+    private final double unit;
+
+    private final Histogram interval;
+
+    RecorderMetric(int significantDigits, double unit) {
+        this.significantDigits = significantDigits;
+        this.total = new Histogram(significantDigits);
+        this.interval = new Histogram(significantDigits);
+        this.unit = unit;
+    }
+
+    void record(long value) {
+        threadStripe.get().recorder.recordValue(value);
+    }
+
+    /**
+     * Record a sampled value, which stands for the given number of values.
+     */
+    void record(long value, long count) {
+        threadStripe.get().recorder.recordValueWithCount(value, count);
+    }
+
+    /**
+     * Start a new interval.
+     */
+    synchronized void swapInterval() {
+        interval.reset();
+        for (Stripe stripe : stripes) {
+            stripe.intervalHistogram = stripe.recorder.getIntervalHistogram(stripe.intervalHistogram);
+            interval.add(stripe.intervalHistogram);
+        }
+        total.add(interval);
+    }
+
+    synchronized Collector.MetricFamilySamples summary(String name, String help) {
+        List<Collector.MetricFamilySamples.Sample> samples = new ArrayList<>(QUANTILES.length + 2);
+        addSummarySamples(samples, name, Collections.emptyList(), Collections.emptyList());
+        return new Collector.MetricFamilySamples(name, Collector.Type.SUMMARY, help, samples);
+    }
+
+    /**
+     * @param buckets Upper bounds of the buckets in the exported unit, in increasing order
+     */
+    synchronized Collector.MetricFamilySamples histogram(String name, String help, double[] buckets) {
+        List<Collector.MetricFamilySamples.Sample> samples = new ArrayList<>(buckets.length + 3);
+        addHistogramSamples(samples, name, Collections.emptyList(), Collections.emptyList(), buckets);
+        return new Collector.MetricFamilySamples(name, Collector.Type.HISTOGRAM, help, samples);
+    }
+
+    /**
+     * Add the summary samples with the given labels. Used to export several recorders in one family.
+     */
+    synchronized void addSummarySamples(List<Collector.MetricFamilySamples.Sample> samples, String name,
+                                        List<String> labelNames, List<String> labelValues) {
+        for (double quantile : QUANTILES) {
+            samples.add(new Collector.MetricFamilySamples.Sample(name, with(labelNames, "quantile"),
+                    with(labelValues, Collector.doubleToGoString(quantile)),
+                    interval.getValueAtPercentile(quantile * 100) / unit));
+        }
+        addCountAndSum(samples, name, labelNames, labelValues);
+    }
+
+    /**
+     * Add the histogram samples with the given labels. Used to export several recorders in one family.
+     */
+    synchronized void addHistogramSamples(List<Collector.MetricFamilySamples.Sample> samples, String name,
+                                          List<String> labelNames, List<String> labelValues, double[] buckets) {
+        List<String> bucketLabelNames = with(labelNames, "le");
+        for (double bucket : buckets) {
+            samples.add(new Collector.MetricFamilySamples.Sample(name + "_bucket", bucketLabelNames,
+                    with(labelValues, Collector.doubleToGoString(bucket)),
+                    total.getCountBetweenValues(0, (long) (bucket * unit))));
+        }
+        samples.add(new Collector.MetricFamilySamples.Sample(name + "_bucket", bucketLabelNames,
+                with(labelValues, "+Inf"), total.getTotalCount()));
+        addCountAndSum(samples, name, labelNames, labelValues);
+    }
+
+    private void addCountAndSum(List<Collector.MetricFamilySamples.Sample> samples, String name,
+                                List<String> labelNames, List<String> labelValues) {
+        long count = total.getTotalCount();
+        samples.add(new Collector.MetricFamilySamples.Sample(name + "_count", labelNames, labelValues, count));
+        // The sum is approximated within the precision of the histogram
+        samples.add(new Collector.MetricFamilySamples.Sample(name + "_sum", labelNames, labelValues,
+                count == 0 ? 0 : total.getMean() * count / unit));
+    }
+
+    private static List<String> with(List<String> list, String element) {
+        List<String> result = new ArrayList<>(list.size() + 1);
+        result.addAll(list);
+        result.add(element);
+        return result;
+    }
+
+    /**
+     * Recorder of a thread and the histogram recycled by the recorder
+     */
+    private static final class Stripe {
+
+        private final SingleWriterRecorder recorder;
+
+        private Histogram intervalHistogram;
+
+        private Stripe(int significantDigits) {
+            this.recorder = new SingleWriterRecorder(significantDigits);
+        }
+    }
+}
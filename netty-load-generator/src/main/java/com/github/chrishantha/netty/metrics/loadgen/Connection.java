@@ -0,0 +1,202 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.loadgen;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoop;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.codec.http.HttpObject;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.ssl.SslContext;
+import io.netty.util.concurrent.ScheduledFuture;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A connection sending requests at the intended start times given by the {@link LoadGenerator}.
+ * <p>
+ * Only one request is in flight at a time. When a response takes longer than the interval between requests, the next
+ * request is sent as soon as the response is received. Latency is always measured from the intended start time, so
+ * that the time spent waiting for the connection is included.
+ * <p>
+ * All methods are called from the event loop of the connection.
+ */
+final class Connection {
+
+    private final LoadGenerator loadGenerator;
+    private final int index;
+    private final EventLoop eventLoop;
+    private final Bootstrap bootstrap;
+    private final boolean keepAlive;
+    private final long timeoutNanos;
+
+    private Channel channel;
+    private long requestIndex;
+    private long intendedStart;
+    private boolean inFlight;
+    private int statusCode;
+    private ScheduledFuture<?> timeoutFuture;
+
+    Connection(LoadGenerator loadGenerator, int index, EventLoop eventLoop, Bootstrap bootstrap, SslContext sslCtx,
+               boolean keepAlive, int timeout) {
+        this.loadGenerator = loadGenerator;
+        this.index = index;
+        this.eventLoop = eventLoop;
+        this.keepAlive = keepAlive;
+        this.timeoutNanos = TimeUnit.SECONDS.toNanos(timeout);
+        this.bootstrap = bootstrap.clone(eventLoop).handler(new ChannelInitializer<Channel>() {
+            @Override
+            protected void initChannel(Channel ch) {
+                ChannelPipeline p = ch.pipeline();
+                if (sslCtx != null) {
+                    p.addLast(sslCtx.newHandler(ch.alloc(), loadGenerator.getHost(), loadGenerator.getPort()));
+                }
+                p.addLast(new HttpClientCodec());
+                p.addLast(new ResponseHandler());
+            }
+        });
+    }
+
+    void start() {
+        eventLoop.execute(this::scheduleNext);
+    }
+
+    private void scheduleNext() {
+        long nextIntendedStart = loadGenerator.intendedStart(index, requestIndex);
+        if (nextIntendedStart >= loadGenerator.getEndTime()) {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+            loadGenerator.connectionDone();
+            return;
+        }
+        long delay = nextIntendedStart - System.nanoTime();
+        if (delay > 0) {
+            eventLoop.schedule(this::sendRequest, delay, TimeUnit.NANOSECONDS);
+        } else {
+            sendRequest();
+        }
+    }
+
+    private void sendRequest() {
+        intendedStart = loadGenerator.intendedStart(index, requestIndex++);
+        inFlight = true;
+        statusCode = 0;
+        timeoutFuture = eventLoop.schedule(() -> failed(new TimeoutException("Request timed out")), timeoutNanos,
+                TimeUnit.NANOSECONDS);
+        if (channel != null && channel.isActive()) {
+            write();
+            return;
+        }
+        long connectingRequest = requestIndex;
+        bootstrap.connect().addListener((ChannelFuture future) -> {
+            if (!inFlight || connectingRequest != requestIndex) {
+                // The request has already failed
+                future.channel().close();
+            } else if (future.isSuccess()) {
+                channel = future.channel();
+                write();
+            } else {
+                failed(future.cause());
+            }
+        });
+    }
+
+    private void write() {
+        Channel ch = channel;
+        ch.writeAndFlush(loadGenerator.newRequest(keepAlive)).addListener((ChannelFuture future) -> {
+            if (!future.isSuccess() && ch == channel) {
+                failed(future.cause());
+            }
+        });
+    }
+
+    private void responseReceived() {
+        if (!inFlight) {
+            return;
+        }
+        complete();
+        loadGenerator.recordResponse(intendedStart, statusCode);
+        if (!keepAlive) {
+            channel.close();
+            channel = null;
+        }
+        scheduleNext();
+    }
+
+    private void failed(Throwable cause) {
+        if (!inFlight) {
+            return;
+        }
+        complete();
+        loadGenerator.recordError(intendedStart, cause);
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+        scheduleNext();
+    }
+
+    private void complete() {
+        inFlight = false;
+        timeoutFuture.cancel(false);
+    }
+
+    /**
+     * Handles responses of the current channel. Events from channels, which are already replaced, are ignored.
+     */
+    private final class ResponseHandler extends SimpleChannelInboundHandler<HttpObject> {
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, HttpObject msg) {
+            if (ctx.channel() != channel) {
+                return;
+            }
+            if (msg instanceof HttpResponse) {
+                statusCode = ((HttpResponse) msg).status().code();
+            }
+            if (msg instanceof LastHttpContent) {
+                responseReceived();
+            }
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+            if (ctx.channel() == channel) {
+                failed(new ClosedChannelException());
+            }
+            super.channelInactive(ctx);
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            if (ctx.channel() == channel) {
+                failed(cause);
+            }
+            ctx.close();
+        }
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.loadgen;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.ParameterException;
+import com.github.chrishantha.netty.metrics.base.transport.Transport;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+
+/**
+ * Open model HTTP load generator.
+ * <p>
+ * Requests are sent at a fixed rate regardless of the response times. The intended start times are spread evenly over
+ * the connections and latencies are measured from the intended start time, which corrects the coordinated omission of
+ * closed model load generators.
+ */
+public final class LoadGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadGenerator.class);
+
+    static final double NANOS_PER_MILLISECOND = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final long START_DELAY = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final LoadGeneratorArgs args;
+    private final HttpMethod method;
+    private final ByteBuf payload;
+    private final Recorder recorder = new Recorder(3);
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder non2xxResponses = new LongAdder();
+    private final CountDownLatch connectionsDone;
+
+    private long startTime;
+    private long warmupEndTime;
+    private long endTime;
+
+    public LoadGenerator(LoadGeneratorArgs args) {
+        this.args = args;
+        this.method = HttpMethod.valueOf(args.getMethod().toUpperCase(Locale.ROOT));
+        int payloadSize = HttpMethod.GET.equals(method) || HttpMethod.HEAD.equals(method) ? 0 : args.getPayloadSize();
+        ByteBuf buffer = Unpooled.directBuffer(payloadSize);
+        for (int i = 0; i < payloadSize; i++) {
+            buffer.writeByte('x');
+        }
+        this.payload = Unpooled.unreleasableBuffer(buffer.asReadOnly());
+        this.connectionsDone = new CountDownLatch(args.getConnections());
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadGeneratorArgs loadGeneratorArgs = new LoadGeneratorArgs();
+        final JCommander jcmdr = JCommander.newBuilder()
+                .programName(LoadGenerator.class.getSimpleName())
+                .addObject(loadGeneratorArgs)
+                .build();
+
+        try {
+            jcmdr.parse(args);
+        } catch (ParameterException ex) {
+            System.err.println(ex.getMessage());
+            return;
+        }
+
+        if (loadGeneratorArgs.isHelp()) {
+            jcmdr.usage();
+            return;
+        }
+
+        if (loadGeneratorArgs.getRate() <= 0 || loadGeneratorArgs.getConnections() <= 0) {
+            System.err.println("Rate and connections should be greater than zero");
+            return;
+        }
+
+        LoadResult result = new LoadGenerator(loadGeneratorArgs).run();
+        System.out.println();
+        result.print(System.out);
+    }
+
+    /**
+     * Run the test. A load generator can only be run once.
+     *
+     * @return Results of the test, excluding the warmup
+     * @throws Exception if the test could not be started
+     */
+    public LoadResult run() throws Exception {
+        logger.info("Load Generator. Target: {}:{}{}, Method: {}, Payload Size: {}B, Keep Alive: {}, SSL: {}," +
+                        " Rate: {}/s, Connections: {}, Duration: {}s, Warmup: {}s, Threads: {}",
+                args.getHost(), args.getPort(), args.getUri(), method, payload.readableBytes(), args.isKeepAlive(),
+                args.isSsl(), args.getRate(), args.getConnections(), args.getDuration(), args.getWarmup(),
+                args.getThreads());
+
+        Transport transport = args.getTransport().resolve();
+        logger.info("Transport: {}", transport);
+
+        final SslContext sslCtx = args.isSsl() ? SslContextBuilder.forClient()
+                .trustManager(InsecureTrustManagerFactory.INSTANCE).build() : null;
+
+        EventLoopGroup group = transport.newEventLoopGroup(args.getThreads());
+        try {
+            Bootstrap b = new Bootstrap();
+            b.channel(transport.socketChannelClass())
+                    .option(ChannelOption.TCP_NODELAY, true)
+                    .remoteAddress(args.getHost(), args.getPort());
+
+            startTime = System.nanoTime() + START_DELAY;
+            warmupEndTime = startTime + TimeUnit.SECONDS.toNanos(args.getWarmup());
+            endTime = warmupEndTime + TimeUnit.SECONDS.toNanos(args.getDuration());
+            for (int i = 0; i < args.getConnections(); i++) {
+                new Connection(this, i, group.next(), b, sslCtx, args.isKeepAlive(), args.getTimeout()).start();
+            }
+
+            Histogram histogram = report();
+            return new LoadResult(histogram, args.getRate(), args.getDuration(), non2xxResponses.sum(),
+                    errors.sum());
+        } finally {
+            group.shutdownGracefully();
+        }
+    }
+
+    /**
+     * Report progress until the end of the test.
+     *
+     * @return Latencies recorded after the warmup
+     */
+    private Histogram report() throws InterruptedException {
+        Histogram total = new Histogram(3);
+        Histogram interval = null;
+        long reportInterval = TimeUnit.SECONDS.toNanos(Math.max(1, args.getReportInterval()));
+        long lastReport = warmupEndTime;
+        long nextReport = warmupEndTime + reportInterval;
+        while (!connectionsDone.await(nextReport - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+            long now = System.nanoTime();
+            if (now >= endTime + TimeUnit.SECONDS.toNanos(args.getTimeout()) + reportInterval) {
+                System.out.println("Some requests were not completed");
+                break;
+            }
+            if (now < nextReport) {
+                continue;
+            }
+            interval = recorder.getIntervalHistogram(interval);
+            total.add(interval);
+            if (now > warmupEndTime) {
+                System.out.println(String.format("%6.1fs %10.1f req/s  p50 %9.3fms  p99 %9.3fms  p99.9 %9.3fms" +
+                                "  max %9.3fms  errors %d",
+                        (now - warmupEndTime) / 1e9, interval.getTotalCount() * 1e9 / (now - lastReport),
+                        interval.getValueAtPercentile(50) / NANOS_PER_MILLISECOND,
+                        interval.getValueAtPercentile(99) / NANOS_PER_MILLISECOND,
+                        interval.getValueAtPercentile(99.9) / NANOS_PER_MILLISECOND,
+                        interval.getMaxValue() / NANOS_PER_MILLISECOND, errors.sum()));
+            }
+            lastReport = now;
+            nextReport = now + reportInterval;
+        }
+        total.add(recorder.getIntervalHistogram());
+        return total;
+    }
+
+    /**
+     * Get the intended start time of a request.
+     *
+     * @param connection   Index of the connection
+     * @param requestIndex Index of the request sent on the connection
+     * @return Intended start time in nanoseconds
+     */
+    long intendedStart(int connection, long requestIndex) {
+        // Connections take turns, so that requests are evenly spread across connections
+        return startTime + (long) ((connection + (double) requestIndex * args.getConnections())
+                * TimeUnit.SECONDS.toNanos(1) / args.getRate());
+    }
+
+    long getEndTime() {
+        return endTime;
+    }
+
+    String getHost() {
+        return args.getHost();
+    }
+
+    int getPort() {
+        return args.getPort();
+    }
+
+    FullHttpRequest newRequest(boolean keepAlive) {
+        FullHttpRequest request = new DefaultFullHttpRequest(HTTP_1_1, method, args.getUri(),
+                payload.retainedDuplicate());
+        request.headers().set(HttpHeaderNames.HOST, args.getHost());
+        request.headers().setInt(HttpHeaderNames.CONTENT_LENGTH, payload.readableBytes());
+        if (payload.isReadable()) {
+            request.headers().set(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.TEXT_PLAIN);
+        }
+        request.headers().set(HttpHeaderNames.CONNECTION,
+                keepAlive ? HttpHeaderValues.KEEP_ALIVE : HttpHeaderValues.CLOSE);
+        return request;
+    }
+
+    void recordResponse(long intendedStart, int statusCode) {
+        if (intendedStart < warmupEndTime) {
+            return;
+        }
+        recorder.recordValue(System.nanoTime() - intendedStart);
+        if (statusCode < 200 || statusCode >= 300) {
+            non2xxResponses.increment();
+        }
+    }
+
+    void recordError(long intendedStart, Throwable cause) {
+        if (intendedStart < warmupEndTime) {
+            return;
+        }
+        errors.increment();
+        logger.trace("Request failed", cause);
+    }
+
+    void connectionDone() {
+        connectionsDone.countDown();
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.loadgen;
+
+import com.beust.jcommander.Parameter;
+import com.github.chrishantha.netty.metrics.base.transport.Transport;
+
+public class LoadGeneratorArgs {
+
+    @Parameter(names = {"-h", "--help"}, description = "Display Help", help = true)
+    private boolean help = false;
+
+    @Parameter(names = "--host", description = "Server Host")
+    private String host = "localhost";
+
+    @Parameter(names = "--port", description = "Server Port")
+    private int port = 8688;
+
+    @Parameter(names = "--uri", description = "Request URI")
+    private String uri = "/";
+
+    @Parameter(names = "--method", description = "HTTP method. Requests other than GET and HEAD send a payload")
+    private String method = "GET";
+
+    @Parameter(names = "--payload-size", description = "Request payload size in bytes")
+    private int payloadSize = 1024;
+
+    @Parameter(names = "--keep-alive",
+            description = "Keep connections alive. Otherwise a new connection is opened for each request", arity = 1)
+    private boolean keepAlive = true;
+
+    @Parameter(names = "--ssl", description = "Use SSL. Server certificates are not verified", arity = 0)
+    private boolean ssl = false;
+
+    @Parameter(names = "--rate", description = "Target request rate per second across all connections")
+    private int rate = 1000;
+
+    @Parameter(names = "--connections", description = "Number of connections")
+    private int connections = 10;
+
+    @Parameter(names = "--duration", description = "Test duration in seconds, excluding the warmup")
+    private int duration = 60;
+
+    @Parameter(names = "--warmup",
+            description = "Warmup duration in seconds. Latencies are not recorded during the warmup")
+    private int warmup = 10;
+
+    @Parameter(names = "--timeout", description = "Request timeout in seconds")
+    private int timeout = 30;
+
+    @Parameter(names = "--threads", description = "Event loop threads")
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    @Parameter(names = "--transport", description = "Transport. Native transports fall back to NIO if not available")
+    private Transport transport = Transport.NIO;
+
+    @Parameter(names = "--report-interval", description = "Interval in seconds to report progress")
+    private int reportInterval = 5;
+
+    public boolean isHelp() {
+        return help;
+    }
+
+    public void setHelp(boolean help) {
+        this.help = help;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public void setHost(String host) {
+        this.host = host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    public String getUri() {
+        return uri;
+    }
+
+    public void setUri(String uri) {
+        this.uri = uri;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public void setMethod(String method) {
+        this.method = method;
+    }
+
+    public int getPayloadSize() {
+        return payloadSize;
+    }
+
+    public void setPayloadSize(int payloadSize) {
+        this.payloadSize = payloadSize;
+    }
+
+    public boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    public void setKeepAlive(boolean keepAlive) {
+        this.keepAlive = keepAlive;
+    }
+
+    public boolean isSsl() {
+        return ssl;
+    }
+
+    public void setSsl(boolean ssl) {
+        this.ssl = ssl;
+    }
+
+    public int getRate() {
+        return rate;
+    }
+
+    public void setRate(int rate) {
+        this.rate = rate;
+    }
+
+    public int getConnections() {
+        return connections;
+    }
+
+    public void setConnections(int connections) {
+        this.connections = connections;
+    }
+
+    public int getDuration() {
+        return duration;
+    }
+
+    public void setDuration(int duration) {
+        this.duration = duration;
+    }
+
+    public int getWarmup() {
+        return warmup;
+    }
+
+    public void setWarmup(int warmup) {
+        this.warmup = warmup;
+    }
+
+    public int getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(int timeout) {
+        this.timeout = timeout;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public Transport getTransport() {
+        return transport;
+    }
+
+    public void setTransport(Transport transport) {
+        this.transport = transport;
+    }
+
+    public int getReportInterval() {
+        return reportInterval;
+    }
+
+    public void setReportInterval(int reportInterval) {
+        this.reportInterval = reportInterval;
+    }
+}
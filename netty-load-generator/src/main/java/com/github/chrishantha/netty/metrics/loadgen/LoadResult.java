@@ -0,0 +1,91 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.loadgen;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+
+/**
+ * Results of a load test. Latencies are in nanoseconds, measured from the intended start time.
+ */
+public final class LoadResult {
+
+    private final Histogram histogram;
+    private final int targetRate;
+    private final int duration;
+    private final long non2xxResponses;
+    private final long errors;
+
+    LoadResult(Histogram histogram, int targetRate, int duration, long non2xxResponses, long errors) {
+        this.histogram = histogram;
+        this.targetRate = targetRate;
+        this.duration = duration;
+        this.non2xxResponses = non2xxResponses;
+        this.errors = errors;
+    }
+
+    public Histogram getHistogram() {
+        return histogram;
+    }
+
+    public int getTargetRate() {
+        return targetRate;
+    }
+
+    public int getDuration() {
+        return duration;
+    }
+
+    public long getRequests() {
+        return histogram.getTotalCount();
+    }
+
+    public long getNon2xxResponses() {
+        return non2xxResponses;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return Completed requests per second
+     */
+    public double getThroughput() {
+        return duration > 0 ? (double) histogram.getTotalCount() / duration : 0;
+    }
+
+    public double getLatencyMillis(double percentile) {
+        return histogram.getValueAtPercentile(percentile) / LoadGenerator.NANOS_PER_MILLISECOND;
+    }
+
+    public double getMaxLatencyMillis() {
+        return histogram.getMaxValue() / LoadGenerator.NANOS_PER_MILLISECOND;
+    }
+
+    /**
+     * Print the latency distribution and the summary.
+     */
+    public void print(PrintStream out) {
+        out.println("Latency distribution in milliseconds, measured from the intended start time:");
+        histogram.outputPercentileDistribution(out, LoadGenerator.NANOS_PER_MILLISECOND);
+        out.println();
+        out.println(String.format("Requests: %d, Target Rate: %d/s, Achieved Rate: %.1f/s", getRequests(),
+                targetRate, getThroughput()));
+        out.println(String.format("Non-2xx Responses: %d, Errors: %d", non2xxResponses, errors));
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.loadgen.runner;
+
+import java.io.File;
+import java.util.Locale;
+
+/**
+ * Metrics backends and the port offsets used by their servers.
+ */
+public enum Backend {
+
+    DROPWIZARD(0),
+    MICROMETER(1),
+    PROMETHEUS(2),
+    HDRHISTOGRAM(3);
+
+    private final int portOffset;
+
+    Backend(int portOffset) {
+        this.portOffset = portOffset;
+    }
+
+    public int getPortOffset() {
+        return portOffset;
+    }
+
+    /**
+     * @param baseDir Root directory of the project
+     * @return The shaded server jar built by the backend module
+     */
+    public File getJar(File baseDir) {
+        String module = "netty-" + name().toLowerCase(Locale.ROOT) + "-metrics";
+        return new File(new File(new File(baseDir, module), "target"), module + ".jar");
+    }
+}
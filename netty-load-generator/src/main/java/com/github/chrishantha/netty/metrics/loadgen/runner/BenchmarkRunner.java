@@ -0,0 +1,211 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.loadgen.runner;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.ParameterException;
+import com.github.chrishantha.netty.metrics.loadgen.LoadGenerator;
+import com.github.chrishantha.netty.metrics.loadgen.LoadGeneratorArgs;
+import com.github.chrishantha.netty.metrics.loadgen.LoadResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the load generator against each backend for a matrix of server configurations and writes a comparison report.
+ * <p>
+ * Each server is started in a new JVM, so that the results of a backend are not affected by the others. CPU, GC and
+ * allocation of the server are read through JMX during the measurement, and the metrics exposition is scraped at the
+ * end of each run.
+ */
+public final class BenchmarkRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(BenchmarkRunner.class);
+
+    private final BenchmarkRunnerArgs args;
+
+    private BenchmarkRunner(BenchmarkRunnerArgs args) {
+        this.args = args;
+    }
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkRunnerArgs benchmarkRunnerArgs = new BenchmarkRunnerArgs();
+        final JCommander jcmdr = JCommander.newBuilder()
+                .programName(BenchmarkRunner.class.getSimpleName())
+                .addObject(benchmarkRunnerArgs)
+                .build();
+
+        try {
+            jcmdr.parse(args);
+        } catch (ParameterException ex) {
+            System.err.println(ex.getMessage());
+            return;
+        }
+
+        if (benchmarkRunnerArgs.isHelp()) {
+            jcmdr.usage();
+            return;
+        }
+
+        new BenchmarkRunner(benchmarkRunnerArgs).run();
+    }
+
+    private void run() throws Exception {
+        Path outputDir = new File(args.getOutputDir()).toPath();
+        Files.createDirectories(outputDir);
+        List<RunResult> results = new ArrayList<>();
+        for (Backend backend : args.getBackends()) {
+            File jar = backend.getJar(new File(args.getBaseDir()));
+            if (!jar.isFile()) {
+                throw new IllegalStateException("Could not find " + jar + ". Build the project first");
+            }
+            for (int sleepTime : args.getSleepTimes()) {
+                for (int payloadSize : args.getPayloadSizes()) {
+                    for (int workerThreads : args.getWorkerThreads()) {
+                        results.add(runBenchmark(backend, jar, outputDir, sleepTime, payloadSize, workerThreads));
+                        // Write the reports after each run to keep the results of an interrupted benchmark
+                        Report.writeJson(results, outputDir.resolve("report.json"));
+                        Report.writeMarkdown(results, outputDir.resolve("report.md"));
+                    }
+                }
+            }
+        }
+        logger.info("Reports written to {}", outputDir.toAbsolutePath());
+    }
+
+    private RunResult runBenchmark(Backend backend, File jar, Path outputDir, int sleepTime, int payloadSize,
+                                   int workerThreads) throws Exception {
+        String name = String.format("%s-sleep-%d-payload-%d-workers-%d", backend.name().toLowerCase(),
+                sleepTime, payloadSize, workerThreads);
+        logger.info("Running {}", name);
+        int port = args.getPort() + backend.getPortOffset();
+        int metricsPort = args.getMetricsPort() + backend.getPortOffset();
+
+        List<String> command = new ArrayList<>();
+        command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+        command.addAll(split(args.getJvmOptions()));
+        command.add("-Dcom.sun.management.jmxremote.port=" + args.getJmxPort());
+        command.add("-Dcom.sun.management.jmxremote.rmi.port=" + args.getJmxPort());
+        command.add("-Dcom.sun.management.jmxremote.authenticate=false");
+        command.add("-Dcom.sun.management.jmxremote.ssl=false");
+        command.add("-Djava.rmi.server.hostname=localhost");
+        command.add("-jar");
+        command.add(jar.getAbsolutePath());
+        command.addAll(Arrays.asList("--port", Integer.toString(args.getPort()),
+                "--metrics-port", Integer.toString(args.getMetricsPort()),
+                "--sleep-time", Integer.toString(sleepTime),
+                "--payload-size", Integer.toString(payloadSize),
+                "--worker-threads", Integer.toString(workerThreads)));
+        command.addAll(split(args.getServerArgs()));
+
+        File log = outputDir.resolve(name + ".log").toFile();
+        Process process = new ProcessBuilder(command)
+                .directory(outputDir.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(log)
+                .start();
+        try {
+            waitForPort(process, port);
+            JMXServiceURL url = new JMXServiceURL("service:jmx:rmi:///jndi/rmi://localhost:" + args.getJmxPort()
+                    + "/jmxrmi");
+            try (JMXConnector connector = JMXConnectorFactory.connect(url)) {
+                if (args.getWarmup() > 0) {
+                    logger.info("Warming up for {}s", args.getWarmup());
+                    runLoad(port, payloadSize, args.getWarmup());
+                }
+                JvmStats before = JvmStats.read(connector.getMBeanServerConnection());
+                LoadResult loadResult = runLoad(port, payloadSize, args.getDuration());
+                JvmStats after = JvmStats.read(connector.getMBeanServerConnection());
+                Exposition exposition = Exposition.parse(scrape(metricsPort));
+                return new RunResult(backend, sleepTime, payloadSize, workerThreads, loadResult, before, after,
+                        exposition);
+            }
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private LoadResult runLoad(int port, int payloadSize, int duration) throws Exception {
+        LoadGeneratorArgs loadGeneratorArgs = new LoadGeneratorArgs();
+        loadGeneratorArgs.setPort(port);
+        loadGeneratorArgs.setMethod(args.getMethod());
+        loadGeneratorArgs.setPayloadSize(payloadSize);
+        loadGeneratorArgs.setRate(args.getRate());
+        loadGeneratorArgs.setConnections(args.getConnections());
+        loadGeneratorArgs.setThreads(args.getLoadThreads());
+        loadGeneratorArgs.setWarmup(0);
+        loadGeneratorArgs.setDuration(duration);
+        return new LoadGenerator(loadGeneratorArgs).run();
+    }
+
+    private void waitForPort(Process process, int port) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(args.getStartupTimeout());
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("Server exited with " + process.exitValue());
+            }
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress("localhost", port), 1000);
+                return;
+            } catch (IOException e) {
+                Thread.sleep(500);
+            }
+        }
+        throw new IllegalStateException("Server did not start on port " + port);
+    }
+
+    private static String scrape(int metricsPort) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + metricsPort + "/metrics")
+                .openConnection();
+        try (InputStream in = connection.getInputStream()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static List<String> split(String value) {
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? new ArrayList<>() : Arrays.asList(trimmed.split("\\s+"));
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.loadgen.runner;
+
+import com.beust.jcommander.Parameter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class BenchmarkRunnerArgs {
+
+    @Parameter(names = {"-h", "--help"}, description = "Display Help", help = true)
+    private boolean help = false;
+
+    @Parameter(names = "--backends", description = "Backends to test")
+    private List<Backend> backends = new ArrayList<>(Arrays.asList(Backend.values()));
+
+    @Parameter(names = "--base-dir", description = "Project directory containing the backend modules")
+    private String baseDir = ".";
+
+    @Parameter(names = "--output-dir", description = "Directory for the reports and the server logs")
+    private String outputDir = "results";
+
+    @Parameter(names = "--sleep-times", description = "Server sleep times in milliseconds")
+    private List<Integer> sleepTimes = new ArrayList<>(Arrays.asList(0, 10));
+
+    @Parameter(names = "--payload-sizes", description = "Payload sizes in bytes")
+    private List<Integer> payloadSizes = new ArrayList<>(Arrays.asList(1024, 102400));
+
+    @Parameter(names = "--worker-threads", description = "Server worker threads")
+    private List<Integer> workerThreads = new ArrayList<>(Collections.singletonList(200));
+
+    @Parameter(names = "--jvm-options", description = "JVM options of the servers")
+    private String jvmOptions = "-Xms1g -Xmx1g";
+
+    @Parameter(names = "--server-args", description = "Additional server arguments")
+    private String serverArgs = "";
+
+    @Parameter(names = "--port", description = "Server port before the backend offset")
+    private int port = 8688;
+
+    @Parameter(names = "--metrics-port", description = "Metrics port before the backend offset")
+    private int metricsPort = 9797;
+
+    @Parameter(names = "--jmx-port", description = "JMX port of the servers")
+    private int jmxPort = 9010;
+
+    @Parameter(names = "--startup-timeout", description = "Time in seconds to wait for a server to start")
+    private int startupTimeout = 60;
+
+    @Parameter(names = "--method", description = "HTTP method")
+    private String method = "GET";
+
+    @Parameter(names = "--rate", description = "Target request rate per second")
+    private int rate = 1000;
+
+    @Parameter(names = "--connections", description = "Number of connections")
+    private int connections = 50;
+
+    @Parameter(names = "--duration", description = "Duration of each test in seconds")
+    private int duration = 30;
+
+    @Parameter(names = "--warmup", description = "Warmup duration of each test in seconds")
+    private int warmup = 10;
+
+    @Parameter(names = "--load-threads", description = "Event loop threads of the load generator")
+    private int loadThreads = Runtime.getRuntime().availableProcessors();
+
+    public boolean isHelp() {
+        return help;
+    }
+
+    public void setHelp(boolean help) {
+        this.help = help;
+    }
+
+    public List<Backend> getBackends() {
+        return backends;
+    }
+
+    public void setBackends(List<Backend> backends) {
+        this.backends = backends;
+    }
+
+    public String getBaseDir() {
+        return baseDir;
+    }
+
+    public void setBaseDir(String baseDir) {
+        this.baseDir = baseDir;
+    }
+
+    public String getOutputDir() {
+        return outputDir;
+    }
+
+    public void setOutputDir(String outputDir) {
+        this.outputDir = outputDir;
+    }
+
+    public List<Integer> getSleepTimes() {
+        return sleepTimes;
+    }
+
+    public void setSleepTimes(List<Integer> sleepTimes) {
+        this.sleepTimes = sleepTimes;
+    }
+
+    public List<Integer> getPayloadSizes() {
+        return payloadSizes;
+    }
+
+    public void setPayloadSizes(List<Integer> payloadSizes) {
+        this.payloadSizes = payloadSizes;
+    }
+
+    public List<Integer> getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public void setWorkerThreads(List<Integer> workerThreads) {
+        this.workerThreads = workerThreads;
+    }
+
+    public String getJvmOptions() {
+        return jvmOptions;
+    }
+
+    public void setJvmOptions(String jvmOptions) {
+        this.jvmOptions = jvmOptions;
+    }
+
+    public String getServerArgs() {
+        return serverArgs;
+    }
+
+    public void setServerArgs(String serverArgs) {
+        this.serverArgs = serverArgs;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    public int getMetricsPort() {
+        return metricsPort;
+    }
+
+    public void setMetricsPort(int metricsPort) {
+        this.metricsPort = metricsPort;
+    }
+
+    public int getJmxPort() {
+        return jmxPort;
+    }
+
+    public void setJmxPort(int jmxPort) {
+        this.jmxPort = jmxPort;
+    }
+
+    public int getStartupTimeout() {
+        return startupTimeout;
+    }
+
+    public void setStartupTimeout(int startupTimeout) {
+        this.startupTimeout = startupTimeout;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public void setMethod(String method) {
+        this.method = method;
+    }
+
+    public int getRate() {
+        return rate;
+    }
+
+    public void setRate(int rate) {
+        this.rate = rate;
+    }
+
+    public int getConnections() {
+        return connections;
+    }
+
+    public void setConnections(int connections) {
+        this.connections = connections;
+    }
+
+    public int getDuration() {
+        return duration;
+    }
+
+    public void setDuration(int duration) {
+        this.duration = duration;
+    }
+
+    public int getWarmup() {
+        return warmup;
+    }
+
+    public void setWarmup(int warmup) {
+        this.warmup = warmup;
+    }
+
+    public int getLoadThreads() {
+        return loadThreads;
+    }
+
+    public void setLoadThreads(int loadThreads) {
+        this.loadThreads = loadThreads;
+    }
+}
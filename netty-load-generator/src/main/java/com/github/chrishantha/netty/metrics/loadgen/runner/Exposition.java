@@ -0,0 +1,90 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.loadgen.runner;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A parsed Prometheus text exposition. Only the sample values are kept, summed by metric name.
+ */
+final class Exposition {
+
+    private final int size;
+    private final Map<String, Double> sums = new HashMap<>();
+    private int samples;
+
+    private Exposition(int size) {
+        this.size = size;
+    }
+
+    static Exposition parse(String text) {
+        Exposition exposition = new Exposition(text.length());
+        for (String line : text.split("\n")) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            int labelsStart = line.indexOf('{');
+            int nameEnd = line.indexOf(' ');
+            String name;
+            int valueStart;
+            if (labelsStart >= 0 && (nameEnd < 0 || labelsStart < nameEnd)) {
+                name = line.substring(0, labelsStart);
+                valueStart = line.lastIndexOf('}') + 1;
+            } else {
+                name = line.substring(0, nameEnd);
+                valueStart = nameEnd;
+            }
+            // The value may be followed by a timestamp
+            String[] fields = line.substring(valueStart).trim().split(" ");
+            exposition.samples++;
+            exposition.sums.merge(name, parseValue(fields[0]), Double::sum);
+        }
+        return exposition;
+    }
+
+    private static double parseValue(String value) {
+        switch (value) {
+            case "+Inf":
+                return Double.POSITIVE_INFINITY;
+            case "-Inf":
+                return Double.NEGATIVE_INFINITY;
+            case "NaN":
+                return Double.NaN;
+            default:
+                return Double.parseDouble(value);
+        }
+    }
+
+    /**
+     * @return Number of characters in the exposition
+     */
+    int getSize() {
+        return size;
+    }
+
+    int getSamples() {
+        return samples;
+    }
+
+    /**
+     * @return Sum of all samples with the given name, or zero if there are no samples
+     */
+    double sum(String name) {
+        return sums.getOrDefault(name, 0.0);
+    }
+}
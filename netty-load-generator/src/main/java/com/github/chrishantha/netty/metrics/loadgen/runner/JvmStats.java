@@ -0,0 +1,89 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.loadgen.runner;
+
+import javax.management.MBeanServerConnection;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+/**
+ * CPU, GC and allocation counters of a JVM, read through JMX.
+ */
+final class JvmStats {
+
+    private final long timestamp;
+    private final long cpuTime;
+    private final long gcCount;
+    private final long gcTime;
+    private final long allocatedBytes;
+
+    private JvmStats(long timestamp, long cpuTime, long gcCount, long gcTime, long allocatedBytes) {
+        this.timestamp = timestamp;
+        this.cpuTime = cpuTime;
+        this.gcCount = gcCount;
+        this.gcTime = gcTime;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    /**
+     * Read the counters. Allocated bytes are summed over live threads.
+     */
+    static JvmStats read(MBeanServerConnection connection) throws IOException {
+        com.sun.management.OperatingSystemMXBean os = ManagementFactory.newPlatformMXBeanProxy(connection,
+                ManagementFactory.OPERATING_SYSTEM_MXBEAN_NAME, com.sun.management.OperatingSystemMXBean.class);
+        long gcCount = 0;
+        long gcTime = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getPlatformMXBeans(connection,
+                GarbageCollectorMXBean.class)) {
+            gcCount += Math.max(0, gc.getCollectionCount());
+            gcTime += Math.max(0, gc.getCollectionTime());
+        }
+        com.sun.management.ThreadMXBean threads = ManagementFactory.newPlatformMXBeanProxy(connection,
+                ManagementFactory.THREAD_MXBEAN_NAME, com.sun.management.ThreadMXBean.class);
+        long allocatedBytes = 0;
+        for (long bytes : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            allocatedBytes += Math.max(0, bytes);
+        }
+        return new JvmStats(System.nanoTime(), os.getProcessCpuTime(), gcCount, gcTime, allocatedBytes);
+    }
+
+    /**
+     * @return CPU usage between the two readings, as a percentage of one core
+     */
+    double cpuUsageSince(JvmStats before) {
+        return 100.0 * (cpuTime - before.cpuTime) / (timestamp - before.timestamp);
+    }
+
+    long gcCountSince(JvmStats before) {
+        return gcCount - before.gcCount;
+    }
+
+    /**
+     * @return GC time in milliseconds
+     */
+    long gcTimeSince(JvmStats before) {
+        return gcTime - before.gcTime;
+    }
+
+    /**
+     * @return Allocation rate in MiB per second
+     */
+    double allocationRateSince(JvmStats before) {
+        return (allocatedBytes - before.allocatedBytes) / (1024.0 * 1024.0)
+                / ((timestamp - before.timestamp) / 1e9);
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.loadgen.runner;
+
+import com.github.chrishantha.netty.metrics.loadgen.LoadResult;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Writes the results of all runs as JSON and as a Markdown table.
+ */
+final class Report {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private Report() {
+    }
+
+    static void writeJson(List<RunResult> results, Path path) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8))) {
+            out.println("[");
+            for (int i = 0; i < results.size(); i++) {
+                RunResult result = results.get(i);
+                LoadResult loadResult = result.getLoadResult();
+                out.println("  {");
+                out.println(format("    \"backend\": \"%s\",", result.getBackend().name().toLowerCase(Locale.ROOT)));
+                out.println(format("    \"sleepTime\": %d,", result.getSleepTime()));
+                out.println(format("    \"payloadSize\": %d,", result.getPayloadSize()));
+                out.println(format("    \"workerThreads\": %d,", result.getWorkerThreads()));
+                out.println(format("    \"targetRate\": %d,", loadResult.getTargetRate()));
+                out.println(format("    \"requests\": %d,", loadResult.getRequests()));
+                out.println(format("    \"throughput\": %.2f,", loadResult.getThroughput()));
+                out.println("    \"latencyMillis\": {");
+                for (double percentile : PERCENTILES) {
+                    out.println(format("      \"p%s\": %.3f,", percentileName(percentile),
+                            loadResult.getLatencyMillis(percentile)));
+                }
+                out.println(format("      \"max\": %.3f", loadResult.getMaxLatencyMillis()));
+                out.println("    },");
+                out.println(format("    \"non2xxResponses\": %d,", loadResult.getNon2xxResponses()));
+                out.println(format("    \"errors\": %d,", loadResult.getErrors()));
+                out.println(format("    \"cpuUsage\": %.2f,", result.getCpuUsage()));
+                out.println(format("    \"gcCount\": %d,", result.getGcCount()));
+                out.println(format("    \"gcTimeMillis\": %d,", result.getGcTime()));
+                out.println(format("    \"allocationRateMiB\": %.2f,", result.getAllocationRate()));
+                out.println(format("    \"expositionSize\": %d,", result.getExposition().getSize()));
+                out.println(format("    \"expositionSamples\": %d,", result.getExposition().getSamples()));
+                out.println(format("    \"serverRequests\": %.0f", result.getExposition().sum("requests_total")));
+                out.println(i < results.size() - 1 ? "  }," : "  }");
+            }
+            out.println("]");
+        }
+    }
+
+    static void writeMarkdown(List<RunResult> results, Path path) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8))) {
+            out.println("# Benchmark Results");
+            out.println();
+            out.println("Latencies are in milliseconds, measured from the intended start time. CPU usage is a"
+                    + " percentage of one core.");
+            out.println();
+            out.println("| Backend | Sleep (ms) | Payload (B) | Workers | Throughput (req/s) | p50 | p90 | p99 | p99.9"
+                    + " | Max | Errors | CPU (%) | GC Count | GC Time (ms) | Allocation (MiB/s) | Exposition (B) |");
+            out.println("|---|---:|---:|---:|---:|---:|---:|---:|---:|---:|---:|---:|---:|---:|---:|---:|");
+            for (RunResult result : results) {
+                LoadResult loadResult = result.getLoadResult();
+                StringBuilder row = new StringBuilder();
+                row.append(format("| %s | %d | %d | %d | %.1f |", result.getBackend().name().toLowerCase(Locale.ROOT),
+                        result.getSleepTime(), result.getPayloadSize(), result.getWorkerThreads(),
+                        loadResult.getThroughput()));
+                for (double percentile : PERCENTILES) {
+                    row.append(format(" %.3f |", loadResult.getLatencyMillis(percentile)));
+                }
+                row.append(format(" %.3f | %d | %.1f | %d | %d | %.1f | %d |", loadResult.getMaxLatencyMillis(),
+                        loadResult.getErrors() + loadResult.getNon2xxResponses(), result.getCpuUsage(),
+                        result.getGcCount(), result.getGcTime(), result.getAllocationRate(),
+                        result.getExposition().getSize()));
+                out.println(row);
+            }
+        }
+    }
+
+    private static String percentileName(double percentile) {
+        return percentile == Math.rint(percentile) ? Integer.toString((int) percentile)
+                : Double.toString(percentile).replace(".", "");
+    }
+
+    private static String format(String format, Object... args) {
+        return String.format(Locale.ROOT, format, args);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.loadgen.runner;
+
+import com.github.chrishantha.netty.metrics.loadgen.LoadResult;
+
+/**
+ * Result of a benchmark run for a backend and a server configuration.
+ */
+final class RunResult {
+
+    private final Backend backend;
+    private final int sleepTime;
+    private final int payloadSize;
+    private final int workerThreads;
+    private final LoadResult loadResult;
+    private final double cpuUsage;
+    private final long gcCount;
+    private final long gcTime;
+    private final double allocationRate;
+    private final Exposition exposition;
+
+    RunResult(Backend backend, int sleepTime, int payloadSize, int workerThreads, LoadResult loadResult,
+              JvmStats before, JvmStats after, Exposition exposition) {
+        this.backend = backend;
+        this.sleepTime = sleepTime;
+        this.payloadSize = payloadSize;
+        this.workerThreads = workerThreads;
+        this.loadResult = loadResult;
+        this.cpuUsage = after.cpuUsageSince(before);
+        this.gcCount = after.gcCountSince(before);
+        this.gcTime = after.gcTimeSince(before);
+        this.allocationRate = after.allocationRateSince(before);
+        this.exposition = exposition;
+    }
+
+    Backend getBackend() {
+        return backend;
+    }
+
+    int getSleepTime() {
+        return sleepTime;
+    }
+
+    int getPayloadSize() {
+        return payloadSize;
+    }
+
+    int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    LoadResult getLoadResult() {
+        return loadResult;
+    }
+
+    /**
+     * @return Server CPU usage as a percentage of one core
+     */
+    double getCpuUsage() {
+        return cpuUsage;
+    }
+
+    long getGcCount() {
+        return gcCount;
+    }
+
+    /**
+     * @return GC time in milliseconds
+     */
+    long getGcTime() {
+        return gcTime;
+    }
+
+    /**
+     * @return Server allocation rate in MiB per second
+     */
+    double getAllocationRate() {
+        return allocationRate;
+    }
+
+    Exposition getExposition() {
+        return exposition;
+    }
+}
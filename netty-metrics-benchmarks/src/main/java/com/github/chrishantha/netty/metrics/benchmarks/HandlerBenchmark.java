@@ -0,0 +1,174 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.benchmarks;
+
+import com.github.chrishantha.netty.metrics.base.NettyHttpServer;
+import com.github.chrishantha.netty.metrics.base.NettyHttpServerHandler;
+import com.github.chrishantha.netty.metrics.base.args.HandlerArgs;
+import com.github.chrishantha.netty.metrics.base.args.ServerArgs;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpVersion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the overhead of each metrics backend by sending requests to the server handler through an
+ * {@link EmbeddedChannel}. Use the GC profiler ({@code -prof gc}) to see the allocation rate.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HandlerBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class HandlerState {
+
+        @Param({"prometheus", "micrometer", "dropwizard", "hdrhistogram"})
+        private String backend;
+
+        @Param({"1024", "102400"})
+        private int payloadSize;
+
+        @Param({"false", "true"})
+        private boolean randomStatusCode;
+
+        private NettyHttpServerHandler<NettyHttpServer> handler;
+
+        private ByteBuf requestContent;
+
+        @Setup
+        public void setup() throws IOException {
+            ServerArgs serverArgs = new ServerArgs();
+            serverArgs.setMetricsPort(findFreePort());
+            HandlerArgs handlerArgs = new HandlerArgs();
+            handlerArgs.setPayloadSize(payloadSize);
+            handlerArgs.setRandomStatusCode(randomStatusCode);
+            handler = newHandler(serverArgs, handlerArgs);
+            requestContent = Unpooled.unreleasableBuffer(Unpooled.directBuffer(payloadSize)
+                    .writeZero(payloadSize).asReadOnly());
+        }
+
+        @SuppressWarnings("unchecked")
+        private NettyHttpServerHandler<NettyHttpServer> newHandler(ServerArgs serverArgs, HandlerArgs handlerArgs) {
+            NettyHttpServer httpServer;
+            NettyHttpServerHandler<? extends NettyHttpServer> httpServerHandler;
+            switch (backend) {
+                case "prometheus":
+                    httpServer = new com.github.chrishantha.netty.metrics.prometheus.NettyHttpServer();
+                    httpServerHandler = new com.github.chrishantha.netty.metrics.prometheus.NettyHttpServerHandler();
+                    break;
+                case "micrometer":
+                    httpServer = new com.github.chrishantha.netty.metrics.micrometer.NettyHttpServer();
+                    httpServerHandler = new com.github.chrishantha.netty.metrics.micrometer.NettyHttpServerHandler();
+                    break;
+                case "dropwizard":
+                    httpServer = new com.github.chrishantha.netty.metrics.dropwizard.NettyHttpServer();
+                    httpServerHandler = new com.github.chrishantha.netty.metrics.dropwizard.NettyHttpServerHandler();
+                    break;
+                case "hdrhistogram":
+                    httpServer = new com.github.chrishantha.netty.metrics.hdrhistogram.NettyHttpServer();
+                    httpServerHandler = new com.github.chrishantha.netty.metrics.hdrhistogram.NettyHttpServerHandler();
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown backend: " + backend);
+            }
+            httpServer.init(serverArgs);
+            NettyHttpServerHandler<NettyHttpServer> nettyHttpServerHandler =
+                    (NettyHttpServerHandler<NettyHttpServer>) httpServerHandler;
+            nettyHttpServerHandler.init(handlerArgs, httpServer);
+            return nettyHttpServerHandler;
+        }
+
+        private static int findFreePort() throws IOException {
+            try (ServerSocket serverSocket = new ServerSocket(0)) {
+                return serverSocket.getLocalPort();
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ChannelState {
+
+        private EmbeddedChannel channel;
+
+        @Setup
+        public void setup(HandlerState handlerState) {
+            channel = new EmbeddedChannel(handlerState.handler);
+        }
+
+        @TearDown
+        public void tearDown() {
+            channel.finishAndReleaseAll();
+        }
+
+        private int request(HttpMethod method, ByteBuf content) {
+            channel.writeInbound(new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, method, "/", content));
+            FullHttpResponse response = channel.readOutbound();
+            try {
+                return response.status().code();
+            } finally {
+                response.release();
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int get(ChannelState channelState) {
+        return channelState.request(HttpMethod.GET, Unpooled.EMPTY_BUFFER);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public int getMaxThreads(ChannelState channelState) {
+        return channelState.request(HttpMethod.GET, Unpooled.EMPTY_BUFFER);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int post(HandlerState handlerState, ChannelState channelState) {
+        return channelState.request(HttpMethod.POST, handlerState.requestContent.duplicate());
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public int postMaxThreads(HandlerState handlerState, ChannelState channelState) {
+        return channelState.request(HttpMethod.POST, handlerState.requestContent.duplicate());
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.benchmarks;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Snapshot;
+import com.github.chrishantha.netty.metrics.dropwizard.ReservoirType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the update throughput of each Dropwizard reservoir.
+ * <p>
+ * Values are uniformly distributed between zero and {@link #MAX_VALUE}. At the end of each trial, the relative error
+ * of the snapshot quantiles is logged to show the accuracy of the reservoir.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReservoirBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReservoirBenchmark.class);
+
+    private static final long MAX_VALUE = 1_000_000;
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    @Param({"exponential", "sliding-window", "sliding-time-window-array", "uniform", "hdr"})
+    private String reservoir;
+
+    private Histogram histogram;
+
+    @Setup
+    public void setup() {
+        histogram = new Histogram(new ReservoirType.Converter().convert(reservoir).newReservoir(1028, 60));
+    }
+
+    @TearDown
+    public void tearDown() {
+        Snapshot snapshot = histogram.getSnapshot();
+        StringBuilder errors = new StringBuilder();
+        for (double quantile : QUANTILES) {
+            double expected = quantile * MAX_VALUE;
+            errors.append(String.format(" p%s=%.4f", quantile * 100,
+                    Math.abs(snapshot.getValue(quantile) - expected) / expected));
+        }
+        logger.info("Relative Error. Reservoir: {}, Values: {}, Quantiles:{}", reservoir, snapshot.size(), errors);
+    }
+
+    @Benchmark
+    public void update() {
+        histogram.update(ThreadLocalRandom.current().nextLong(MAX_VALUE));
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void updateMaxThreads() {
+        histogram.update(ThreadLocalRandom.current().nextLong(MAX_VALUE));
+    }
+}
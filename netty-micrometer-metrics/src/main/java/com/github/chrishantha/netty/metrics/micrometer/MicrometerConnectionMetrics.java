@@ -0,0 +1,54 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.micrometer;
+
+import com.github.chrishantha.netty.metrics.base.connection.ConnectionMetrics;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connection metrics recorded with a Micrometer timer and distribution summary. The connection and byte counts are
+ * read by function counters and a gauge.
+ */
+class MicrometerConnectionMetrics extends ConnectionMetrics {
+
+    private final Timer lifetimeTimer;
+
+    private final DistributionSummary requestsSummary;
+
+    MicrometerConnectionMetrics(MeterRegistry registry) {
+        lifetimeTimer = Timer.builder("connection_lifetime").publishPercentiles(0.5, 0.75, 0.98, 0.99, 0.999)
+                .register(registry);
+        requestsSummary = DistributionSummary.builder("connection_requests")
+                .publishPercentiles(0.5, 0.75, 0.98, 0.99, 0.999)
+                .register(registry);
+        Gauge.builder("connections_active", this, ConnectionMetrics::getActiveConnections).register(registry);
+        FunctionCounter.builder("connections", this, ConnectionMetrics::getTotalConnections).register(registry);
+        FunctionCounter.builder("bytes_read", this, ConnectionMetrics::getBytesRead).register(registry);
+        FunctionCounter.builder("bytes_written", this, ConnectionMetrics::getBytesWritten).register(registry);
+    }
+
+    @Override
+    protected void recordConnection(long lifetimeNanos, long requests) {
+        lifetimeTimer.record(lifetimeNanos, TimeUnit.NANOSECONDS);
+        requestsSummary.record(requests);
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.micrometer;
+
+import com.github.chrishantha.netty.metrics.base.ssl.HandshakeMetrics;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TLS handshake metrics recorded with a Micrometer timer. The handshake counts are read by function counters and a
+ * gauge.
+ */
+class MicrometerHandshakeMetrics extends HandshakeMetrics {
+
+    private final Timer latencyTimer;
+
+    MicrometerHandshakeMetrics(MeterRegistry registry) {
+        latencyTimer = Timer.builder("ssl_handshake_latency").publishPercentiles(0.5, 0.75, 0.98, 0.99, 0.999)
+                .register(registry);
+        FunctionCounter.builder("ssl_handshakes", this, HandshakeMetrics::getHandshakes).register(registry);
+        FunctionCounter.builder("ssl_handshakes_resumed", this, HandshakeMetrics::getResumedHandshakes)
+                .register(registry);
+        FunctionCounter.builder("ssl_handshake_failures", this, HandshakeMetrics::getFailedHandshakes)
+                .register(registry);
+        Gauge.builder("ssl_resumption_ratio", this, HandshakeMetrics::getResumptionRatio).register(registry);
+    }
+
+    @Override
+    protected void recordHandshake(long latencyNanos) {
+        latencyTimer.record(latencyNanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -16,10 +16,21 @@
 package com.github.chrishantha.netty.metrics.micrometer;
 
 import com.github.chrishantha.netty.metrics.base.AbstractNettyHttpServer;
+import com.github.chrishantha.netty.metrics.base.allocator.AllocatorMetrics;
+import com.github.chrishantha.netty.metrics.base.allocator.AllocatorMetrics.MemoryType;
 import com.github.chrishantha.netty.metrics.base.args.ServerArgs;
-import io.micrometer.core.instrument.Counter;
+import com.github.chrishantha.netty.metrics.base.backpressure.BackpressureMetrics;
+import com.github.chrishantha.netty.metrics.base.connection.ConnectionMetrics;
+import com.github.chrishantha.netty.metrics.base.eventloop.EventLoopProbe;
+import com.github.chrishantha.netty.metrics.base.sampling.RequestSampler;
+import com.github.chrishantha.netty.metrics.base.ssl.HandshakeMetrics;
+import com.github.chrishantha.netty.metrics.base.status.StatusCodeTable;
+import com.github.chrishantha.netty.metrics.base.striped.StripedCounter;
 import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
 import io.micrometer.core.instrument.Timer;
 import io.micrometer.core.instrument.binder.jvm.ClassLoaderMetrics;
 import io.micrometer.core.instrument.binder.jvm.JvmGcMetrics;
@@ -31,37 +42,61 @@ import io.micrometer.core.instrument.binder.system.UptimeMetrics;
 import io.micrometer.prometheus.PrometheusConfig;
 import io.micrometer.prometheus.PrometheusMeterRegistry;
 import io.prometheus.client.exporter.HTTPServer;
+import io.prometheus.client.exporter.common.TextFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.Writer;
 import java.net.InetSocketAddress;
+import java.util.List;
 
+/**
+ * Netty HTTP Server recording metrics with Micrometer.
+ * <p>
+ * Responses are counted by status code and status class in {@code responses} and request latencies are timed by
+ * status class in {@code requests_latency}. The meters of each status code are built when the code is first seen.
+ */
 public class NettyHttpServer extends AbstractNettyHttpServer {
 
     private static final Logger logger = LoggerFactory.getLogger(NettyHttpServer.class);
 
     private static final short OFFSET = 1;
 
-    private Counter totalRequestCounter;
-    private Timer requestLatencyTimer;
+    private PrometheusMeterRegistry registry;
+
+    private final StripedCounter totalRequestCounter = new StripedCounter();
+    private StatusCodeTable<Timer> requestLatencyTimers;
+    private StatusCodeTable<StatusMetrics> statusMetrics;
     private Timer sleepTimer;
+    private Timer timeToFirstByteTimer;
     private DistributionSummary requestSizeSummary;
     private DistributionSummary responseSizeSummary;
+    private DistributionSummary compressedResponseSizeSummary;
+
+    // Gauges keep weak references to the objects they read
+    private AllocatorMetrics allocatorMetrics;
+    private BackpressureMetrics backpressureMetrics;
+    private RequestSampler requestSampler;
 
     @Override
     public void init(ServerArgs serverArgs) {
         serverArgs.setPort(serverArgs.getPort() + OFFSET);
         serverArgs.setMetricsPort(serverArgs.getMetricsPort() + OFFSET);
 
-        PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
         Metrics.globalRegistry.add(registry);
-        totalRequestCounter = registry.counter("requests_total");
-        Counter.builder("requests_total").register(registry);
-        requestLatencyTimer = Timer.builder("requests_latency").publishPercentiles(0.5, 0.75, 0.98, 0.99, 0.999)
-                .register(registry);
+        // The counter is striped by event loop and summed when the metrics are collected
+        FunctionCounter.builder("requests_total", totalRequestCounter, StripedCounter::sum).register(registry);
+        requestLatencyTimers = StatusCodeTable.byClass(code -> Timer.builder("requests_latency")
+                .tag("class", StatusCodeTable.statusClass(code))
+                .publishPercentiles(0.5, 0.75, 0.98, 0.99, 0.999)
+                .register(registry));
+        statusMetrics = StatusCodeTable.byCode(this::newStatusMetrics);
         sleepTimer = Timer.builder("sleep_time").publishPercentiles(0.5, 0.75, 0.98, 0.99, 0.999)
                 .register(registry);
+        timeToFirstByteTimer = Timer.builder("time_to_first_byte").publishPercentiles(0.5, 0.75, 0.98, 0.99, 0.999)
+                .register(registry);
         requestSizeSummary = DistributionSummary
                 .builder("request_size")
                 .tags()
@@ -72,6 +107,11 @@ public class NettyHttpServer extends AbstractNettyHttpServer {
                 .publishPercentiles(0.5, 0.75, 0.98, 0.99, 0.999)
                 .baseUnit("bytes")
                 .register(registry);
+        compressedResponseSizeSummary = DistributionSummary
+                .builder("compressed_response_size")
+                .publishPercentiles(0.5, 0.75, 0.98, 0.99, 0.999)
+                .baseUnit("bytes")
+                .register(registry);
 
         new ClassLoaderMetrics().bindTo(registry);
         new JvmMemoryMetrics().bindTo(registry);
@@ -80,25 +120,116 @@ public class NettyHttpServer extends AbstractNettyHttpServer {
         new JvmThreadMetrics().bindTo(registry);
         new FileDescriptorMetrics().bindTo(registry);
         new UptimeMetrics().bindTo(registry);
-        try {
-            new HTTPServer(new InetSocketAddress(serverArgs.getMetricsPort()), registry.getPrometheusRegistry(), true);
-        } catch (IOException e) {
-            throw new IllegalStateException(e);
+        if (!serverArgs.isNettyMetricsServer()) {
+            try {
+                new HTTPServer(new InetSocketAddress(serverArgs.getMetricsPort()), registry.getPrometheusRegistry(),
+                        true);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    @Override
+    protected void writeMetrics(Writer writer) throws IOException {
+        TextFormat.write004(writer, registry.getPrometheusRegistry().metricFamilySamples());
+    }
+
+    @Override
+    protected void registerEventLoopMetrics(List<EventLoopProbe> probes) {
+        for (EventLoopProbe probe : probes) {
+            Tags tags = Tags.of("group", probe.getGroup(), "index", probe.getIndex());
+            Gauge.builder("event_loop_pending_tasks", probe, EventLoopProbe::getPendingTasks).tags(tags)
+                    .register(registry);
+            Gauge.builder("event_loop_scheduled_tasks", probe, EventLoopProbe::getScheduledTasks).tags(tags)
+                    .register(registry);
+            Gauge.builder("event_loop_lag", probe, p -> p.getLagNanos() / 1e9).tags(tags)
+                    .baseUnit("seconds").register(registry);
+            Gauge.builder("event_loop_busy_ratio", probe, EventLoopProbe::getBusyRatio).tags(tags)
+                    .register(registry);
         }
     }
 
-    public Counter getTotalRequestCounter() {
+    @Override
+    protected void registerAllocatorMetrics(AllocatorMetrics allocatorMetrics) {
+        this.allocatorMetrics = allocatorMetrics;
+        for (MemoryType type : MemoryType.values()) {
+            Tags tags = Tags.of("type", type.toString());
+            Gauge.builder("allocator_used_memory", allocatorMetrics, m -> m.getUsedMemory(type)).tags(tags)
+                    .baseUnit("bytes").register(registry);
+            Gauge.builder("allocator_arenas", allocatorMetrics, m -> m.getArenas(type)).tags(tags)
+                    .register(registry);
+            Gauge.builder("allocator_active_allocations", allocatorMetrics, m -> m.getActiveAllocations(type))
+                    .tags(tags).register(registry);
+            Gauge.builder("allocator_chunks", allocatorMetrics, m -> m.getChunks(type)).tags(tags)
+                    .register(registry);
+            Gauge.builder("allocator_chunk_usage_ratio", allocatorMetrics, m -> m.getChunkUsage(type)).tags(tags)
+                    .register(registry);
+        }
+        Gauge.builder("allocator_thread_local_caches", allocatorMetrics, AllocatorMetrics::getThreadLocalCaches)
+                .register(registry);
+        Gauge.builder("allocator_chunk_size", allocatorMetrics, AllocatorMetrics::getChunkSize).baseUnit("bytes")
+                .register(registry);
+    }
+
+    @Override
+    protected void registerBackpressureMetrics(BackpressureMetrics backpressureMetrics) {
+        this.backpressureMetrics = backpressureMetrics;
+        Gauge.builder("channels_unwritable", backpressureMetrics, BackpressureMetrics::getUnwritableChannels)
+                .register(registry);
+        FunctionCounter.builder("channel_unwritable", backpressureMetrics, BackpressureMetrics::getUnwritableEvents)
+                .register(registry);
+        FunctionCounter.builder("channel_unwritable_seconds", backpressureMetrics,
+                m -> m.getUnwritableNanos() / 1e9).register(registry);
+        Gauge.builder("pending_outbound", backpressureMetrics, BackpressureMetrics::getPendingOutboundBytes)
+                .baseUnit("bytes").register(registry);
+    }
+
+    @Override
+    protected ConnectionMetrics newConnectionMetrics() {
+        return new MicrometerConnectionMetrics(registry);
+    }
+
+    @Override
+    protected HandshakeMetrics newHandshakeMetrics() {
+        return new MicrometerHandshakeMetrics(registry);
+    }
+
+    @Override
+    protected void registerSamplingMetrics(RequestSampler requestSampler) {
+        this.requestSampler = requestSampler;
+        Gauge.builder("sample_rate", requestSampler, RequestSampler::getSampleRate).register(registry);
+        FunctionCounter.builder("sampled_requests", requestSampler, RequestSampler::getSampledRequests)
+                .register(registry);
+    }
+
+    public StripedCounter getTotalRequestCounter() {
         return totalRequestCounter;
     }
 
-    public Timer getRequestLatencyTimer() {
-        return requestLatencyTimer;
+    private StatusMetrics newStatusMetrics(int statusCode) {
+        StatusMetrics metrics = new StatusMetrics(requestLatencyTimers.get(statusCode));
+        FunctionCounter.builder("responses", metrics.getResponses(), StripedCounter::sum)
+                .tags("code", StatusCodeTable.code(statusCode), "class", StatusCodeTable.statusClass(statusCode))
+                .register(registry);
+        return metrics;
+    }
+
+    /**
+     * Get the metrics updated for the responses with the given status code.
+     */
+    StatusMetrics getStatusMetrics(int statusCode) {
+        return statusMetrics.get(statusCode);
     }
 
     public Timer getSleepTimer() {
         return sleepTimer;
     }
 
+    public Timer getTimeToFirstByteTimer() {
+        return timeToFirstByteTimer;
+    }
+
     public DistributionSummary getRequestSizeSummary() {
         return requestSizeSummary;
     }
@@ -106,4 +237,8 @@ public class NettyHttpServer extends AbstractNettyHttpServer {
     public DistributionSummary getResponseSizeSummary() {
         return responseSizeSummary;
     }
+
+    public DistributionSummary getCompressedResponseSizeSummary() {
+        return compressedResponseSizeSummary;
+    }
 }
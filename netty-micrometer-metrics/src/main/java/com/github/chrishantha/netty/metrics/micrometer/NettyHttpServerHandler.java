@@ -17,11 +17,16 @@ package com.github.chrishantha.netty.metrics.micrometer;
 
 import com.github.chrishantha.netty.metrics.base.AbstractNettyHttpServerHandler;
 import com.github.chrishantha.netty.metrics.base.args.HandlerArgs;
-import io.micrometer.core.instrument.Counter;
-import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
 
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Micrometer 1.0 timers and distribution summaries do not support weighted recording, and their Prometheus samples
+ * are read from the meters. Each sampled value is therefore recorded as many times as its weight, which keeps the
+ * counts, sums and rates of the sampled requests exact.
+ */
 public class NettyHttpServerHandler extends AbstractNettyHttpServerHandler<NettyHttpServer> {
 
     private NettyHttpServer httpServer;
@@ -33,36 +38,59 @@ public class NettyHttpServerHandler extends AbstractNettyHttpServerHandler<Netty
     }
 
     @Override
-    protected Object requestStart(String method, String uri) {
-        Counter.builder("handler_total").register(Metrics.globalRegistry);
+    protected long requestStart(String method, String uri) {
         httpServer.getTotalRequestCounter().increment();
         return System.nanoTime();
     }
 
     @Override
-    protected void requestEnd(String method, String uri, int statusCode, Object object) {
-        httpServer.getRequestLatencyTimer().record(System.nanoTime() - ((Long) object), TimeUnit.NANOSECONDS);
+    protected void requestEnd(String method, String uri, int statusCode, long startNanos, int weight) {
+        StatusMetrics statusMetrics = httpServer.getStatusMetrics(statusCode);
+        if (weight > 0) {
+            statusMetrics.recordLatency(System.nanoTime() - startNanos, weight);
+        }
+        statusMetrics.increment();
     }
 
     @Override
-    protected Object sleepStart() {
+    protected long sleepStart() {
         return System.nanoTime();
     }
 
     @Override
-    protected void sleepEnd(Object object) {
-        httpServer.getSleepTimer().record(System.nanoTime() - ((Long) object), TimeUnit.NANOSECONDS);
+    protected void sleepEnd(long startNanos, int weight) {
+        record(httpServer.getSleepTimer(), System.nanoTime() - startNanos, weight);
     }
 
     @Override
-    protected void requestSize(int size) {
-        httpServer.getRequestSizeSummary().record(size);
+    protected void firstByte(long startNanos, int weight) {
+        record(httpServer.getTimeToFirstByteTimer(), System.nanoTime() - startNanos, weight);
     }
 
     @Override
-    protected void responseSize(int size) {
-        httpServer.getResponseSizeSummary().record(size);
+    protected void requestSize(int size, int weight) {
+        record(httpServer.getRequestSizeSummary(), size, weight);
     }
 
+    @Override
+    protected void responseSize(int size, int weight) {
+        record(httpServer.getResponseSizeSummary(), size, weight);
+    }
 
+    @Override
+    protected void compressedResponseSize(int size, int weight) {
+        record(httpServer.getCompressedResponseSizeSummary(), size, weight);
+    }
+
+    private static void record(Timer timer, long nanos, int weight) {
+        for (int i = 0; i < weight; i++) {
+            timer.record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static void record(DistributionSummary summary, int size, int weight) {
+        for (int i = 0; i < weight; i++) {
+            summary.record(size);
+        }
+    }
 }
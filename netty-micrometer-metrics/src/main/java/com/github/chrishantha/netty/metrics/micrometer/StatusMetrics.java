@@ -0,0 +1,52 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.micrometer;
+
+import com.github.chrishantha.netty.metrics.base.striped.StripedCounter;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metrics updated for the responses with a status code.
+ * <p>
+ * The response counter is specific to the status code and is read by a function counter, which keeps only a weak
+ * reference to it. The latency timer is shared by the status codes of the same status class.
+ */
+final class StatusMetrics {
+
+    private final StripedCounter responses = new StripedCounter();
+
+    private final Timer latency;
+
+    StatusMetrics(Timer latency) {
+        this.latency = latency;
+    }
+
+    StripedCounter getResponses() {
+        return responses;
+    }
+
+    void increment() {
+        responses.increment();
+    }
+
+    void recordLatency(long latencyNanos, int weight) {
+        for (int i = 0; i < weight; i++) {
+            latency.record(latencyNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
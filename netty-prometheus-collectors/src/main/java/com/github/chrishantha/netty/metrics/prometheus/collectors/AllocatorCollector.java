@@ -0,0 +1,72 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.prometheus.collectors;
+
+import com.github.chrishantha.netty.metrics.base.allocator.AllocatorMetrics;
+import com.github.chrishantha.netty.metrics.base.allocator.AllocatorMetrics.MemoryType;
+import io.prometheus.client.Collector;
+import io.prometheus.client.GaugeMetricFamily;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Collects the metrics of the buffer allocator, labeled by memory type.
+ */
+public class AllocatorCollector extends Collector {
+
+    private static final List<String> LABEL_NAMES = Collections.singletonList("type");
+
+    private final AllocatorMetrics allocatorMetrics;
+
+    public AllocatorCollector(AllocatorMetrics allocatorMetrics) {
+        this.allocatorMetrics = allocatorMetrics;
+    }
+
+    @Override
+    public List<MetricFamilySamples> collect() {
+        GaugeMetricFamily usedMemory = new GaugeMetricFamily("allocator_used_memory_bytes",
+                "Memory used by the buffer allocator", LABEL_NAMES);
+        GaugeMetricFamily arenas = new GaugeMetricFamily("allocator_arenas", "Arenas of the pooled allocator",
+                LABEL_NAMES);
+        GaugeMetricFamily activeAllocations = new GaugeMetricFamily("allocator_active_allocations",
+                "Buffers allocated from the arenas and not released", LABEL_NAMES);
+        GaugeMetricFamily chunks = new GaugeMetricFamily("allocator_chunks", "Chunks of the pooled allocator",
+                LABEL_NAMES);
+        GaugeMetricFamily chunkUsage = new GaugeMetricFamily("allocator_chunk_usage_ratio",
+                "Fraction of the chunk memory in use", LABEL_NAMES);
+        for (MemoryType type : MemoryType.values()) {
+            List<String> labelValues = Collections.singletonList(type.toString());
+            usedMemory.addMetric(labelValues, allocatorMetrics.getUsedMemory(type));
+            arenas.addMetric(labelValues, allocatorMetrics.getArenas(type));
+            activeAllocations.addMetric(labelValues, allocatorMetrics.getActiveAllocations(type));
+            chunks.addMetric(labelValues, allocatorMetrics.getChunks(type));
+            chunkUsage.addMetric(labelValues, allocatorMetrics.getChunkUsage(type));
+        }
+        List<MetricFamilySamples> mfs = new ArrayList<>(7);
+        mfs.add(usedMemory);
+        mfs.add(arenas);
+        mfs.add(activeAllocations);
+        mfs.add(chunks);
+        mfs.add(chunkUsage);
+        mfs.add(new GaugeMetricFamily("allocator_thread_local_caches", "Thread local caches of the pooled allocator",
+                allocatorMetrics.getThreadLocalCaches()));
+        mfs.add(new GaugeMetricFamily("allocator_chunk_size_bytes", "Chunk size of the pooled allocator",
+                allocatorMetrics.getChunkSize()));
+        return mfs;
+    }
+}
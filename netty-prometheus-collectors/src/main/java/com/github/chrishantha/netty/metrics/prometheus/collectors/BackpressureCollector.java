@@ -0,0 +1,50 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.prometheus.collectors;
+
+import com.github.chrishantha.netty.metrics.base.backpressure.BackpressureMetrics;
+import io.prometheus.client.Collector;
+import io.prometheus.client.CounterMetricFamily;
+import io.prometheus.client.GaugeMetricFamily;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the write backpressure metrics.
+ */
+public class BackpressureCollector extends Collector {
+
+    private final BackpressureMetrics backpressureMetrics;
+
+    public BackpressureCollector(BackpressureMetrics backpressureMetrics) {
+        this.backpressureMetrics = backpressureMetrics;
+    }
+
+    @Override
+    public List<MetricFamilySamples> collect() {
+        List<MetricFamilySamples> mfs = new ArrayList<>(4);
+        mfs.add(new GaugeMetricFamily("channels_unwritable", "Channels, which are currently unwritable",
+                backpressureMetrics.getUnwritableChannels()));
+        mfs.add(new CounterMetricFamily("channel_unwritable_total", "Times a channel became unwritable",
+                backpressureMetrics.getUnwritableEvents()));
+        mfs.add(new CounterMetricFamily("channel_unwritable_seconds_total", "Total time channels were unwritable",
+                backpressureMetrics.getUnwritableNanos() / NANOSECONDS_PER_SECOND));
+        mfs.add(new GaugeMetricFamily("pending_outbound_bytes", "Bytes waiting in the outbound buffers",
+                backpressureMetrics.getPendingOutboundBytes()));
+        return mfs;
+    }
+}
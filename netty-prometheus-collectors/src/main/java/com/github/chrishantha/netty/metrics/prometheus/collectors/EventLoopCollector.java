@@ -0,0 +1,63 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.prometheus.collectors;
+
+import com.github.chrishantha.netty.metrics.base.eventloop.EventLoopProbe;
+import io.prometheus.client.Collector;
+import io.prometheus.client.GaugeMetricFamily;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Collects the values of the event loop probes, labeled by event loop group and index.
+ */
+public class EventLoopCollector extends Collector {
+
+    private static final List<String> LABEL_NAMES = Arrays.asList("group", "index");
+
+    private final List<EventLoopProbe> probes;
+
+    public EventLoopCollector(List<EventLoopProbe> probes) {
+        this.probes = probes;
+    }
+
+    @Override
+    public List<MetricFamilySamples> collect() {
+        GaugeMetricFamily pendingTasks = new GaugeMetricFamily("event_loop_pending_tasks",
+                "Tasks waiting in the event loop task queue", LABEL_NAMES);
+        GaugeMetricFamily scheduledTasks = new GaugeMetricFamily("event_loop_scheduled_tasks",
+                "Tasks scheduled on the event loop", LABEL_NAMES);
+        GaugeMetricFamily lag = new GaugeMetricFamily("event_loop_lag_seconds",
+                "Delay of the last event loop probe after its deadline", LABEL_NAMES);
+        GaugeMetricFamily busyRatio = new GaugeMetricFamily("event_loop_busy_ratio",
+                "Fraction of time the event loop thread was running on a CPU", LABEL_NAMES);
+        for (EventLoopProbe probe : probes) {
+            List<String> labelValues = Arrays.asList(probe.getGroup(), probe.getIndex());
+            pendingTasks.addMetric(labelValues, probe.getPendingTasks());
+            scheduledTasks.addMetric(labelValues, probe.getScheduledTasks());
+            lag.addMetric(labelValues, probe.getLagNanos() / NANOSECONDS_PER_SECOND);
+            busyRatio.addMetric(labelValues, probe.getBusyRatio());
+        }
+        List<MetricFamilySamples> mfs = new ArrayList<>(4);
+        mfs.add(pendingTasks);
+        mfs.add(scheduledTasks);
+        mfs.add(lag);
+        mfs.add(busyRatio);
+        return mfs;
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.prometheus.collectors;
+
+import com.github.chrishantha.netty.metrics.base.sampling.RequestSampler;
+import io.prometheus.client.Collector;
+import io.prometheus.client.CounterMetricFamily;
+import io.prometheus.client.GaugeMetricFamily;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the request sampling metrics, which are compared with the total requests.
+ */
+public class SamplingCollector extends Collector {
+
+    private final RequestSampler requestSampler;
+
+    public SamplingCollector(RequestSampler requestSampler) {
+        this.requestSampler = requestSampler;
+    }
+
+    @Override
+    public List<MetricFamilySamples> collect() {
+        List<MetricFamilySamples> mfs = new ArrayList<>(2);
+        mfs.add(new GaugeMetricFamily("sample_rate", "Latency and size distributions record 1 in N requests",
+                requestSampler.getSampleRate()));
+        mfs.add(new CounterMetricFamily("sampled_requests_total", "Requests recorded in the distributions",
+                requestSampler.getSampledRequests()));
+        return mfs;
+    }
+}
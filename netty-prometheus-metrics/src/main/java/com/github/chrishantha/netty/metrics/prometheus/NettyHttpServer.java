@@ -15,18 +15,42 @@
  */
 package com.github.chrishantha.netty.metrics.prometheus;
 
+import com.beust.jcommander.Parameter;
 import com.github.chrishantha.netty.metrics.base.AbstractNettyHttpServer;
+import com.github.chrishantha.netty.metrics.base.allocator.AllocatorMetrics;
 import com.github.chrishantha.netty.metrics.base.args.ServerArgs;
+import com.github.chrishantha.netty.metrics.base.backpressure.BackpressureMetrics;
+import com.github.chrishantha.netty.metrics.base.connection.ConnectionMetrics;
+import com.github.chrishantha.netty.metrics.base.eventloop.EventLoopProbe;
+import com.github.chrishantha.netty.metrics.base.sampling.RequestSampler;
+import com.github.chrishantha.netty.metrics.base.ssl.HandshakeMetrics;
+import com.github.chrishantha.netty.metrics.base.status.StatusCodeTable;
+import com.github.chrishantha.netty.metrics.base.striped.StripedCounter;
+import com.github.chrishantha.netty.metrics.prometheus.collectors.AllocatorCollector;
+import com.github.chrishantha.netty.metrics.prometheus.collectors.BackpressureCollector;
+import com.github.chrishantha.netty.metrics.prometheus.collectors.EventLoopCollector;
+import com.github.chrishantha.netty.metrics.prometheus.collectors.SamplingCollector;
+import io.netty.util.concurrent.FastThreadLocal;
+import io.prometheus.client.Collector;
+import io.prometheus.client.CollectorRegistry;
 import io.prometheus.client.Counter;
-import io.prometheus.client.Gauge;
 import io.prometheus.client.Histogram;
 import io.prometheus.client.Summary;
 import io.prometheus.client.exporter.HTTPServer;
+import io.prometheus.client.exporter.common.TextFormat;
 import io.prometheus.client.hotspot.DefaultExports;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class NettyHttpServer extends AbstractNettyHttpServer {
 
@@ -34,87 +58,151 @@ public class NettyHttpServer extends AbstractNettyHttpServer {
 
     private static final short OFFSET = 2;
 
-    private Counter totalRequestCounter;
-    private Gauge inprogressRequestsGauge;
+    @Parameter(names = "--uri-template",
+            description = "Route template used as the uri label. Example: /users/{id}. Can be repeated")
+    private List<String> uriTemplates = new ArrayList<>();
+
+    @Parameter(names = "--max-uris",
+            description = "Maximum number of distinct paths not matching a route template. Others are labeled as "
+                    + UriNormalizer.OVERFLOW)
+    private int maxUris = 100;
+
+    private UriNormalizer uriNormalizer;
+
+    private final ConcurrentMap<String, ConcurrentMap<String, RouteMetrics>> routeMetrics = new ConcurrentHashMap<>();
+
+    private final FastThreadLocal<Map<String, Map<String, RouteMetrics>>> cachedRouteMetrics =
+            new FastThreadLocal<Map<String, Map<String, RouteMetrics>>>() {
+                @Override
+                protected Map<String, Map<String, RouteMetrics>> initialValue() {
+                    return new HashMap<>();
+                }
+            };
+
+    private final StatusCodeTable<StripedCounter> responseCounters =
+            StatusCodeTable.byCode(code -> new StripedCounter());
+
     private Histogram requestLatencyHistogram;
     private Summary requestLatencySummary;
     private Summary sleepTimeSummary;
+    private Summary timeToFirstByteSummary;
     private Summary requestSizeSummary;
     private Summary responseSizeSummary;
-    private Counter http1XXCounter;
-    private Counter http2XXCounter;
-    private Counter http3XXCounter;
-    private Counter http4XXCounter;
-    private Counter http5XXCounter;
+    private Summary compressedResponseSizeSummary;
 
     @Override
     public void init(ServerArgs serverArgs) {
         serverArgs.setPort(serverArgs.getPort() + OFFSET);
         serverArgs.setMetricsPort(serverArgs.getMetricsPort() + OFFSET);
 
-        totalRequestCounter = Counter.build()
-                .name("requests_total").help("Requests total").labelNames("method", "uri").register();
-        inprogressRequestsGauge = Gauge.build()
-                .name("inprogress_requests").help("Inprogress Requests").labelNames("method", "uri").register();
+        uriNormalizer = new UriNormalizer(uriTemplates, maxUris);
+
+        new CountersCollector().register();
         requestLatencyHistogram = Histogram.build()
-                .labelNames("method")
-                .name("requests_latency_seconds").help("Request latency in seconds.").labelNames("method", "uri").register();
+                .name("requests_latency_seconds").help("Request latency in seconds.")
+                .labelNames("method", "uri", "class").create();
         requestLatencySummary = Summary.build()
                 .quantile(0.1, 0.05)
                 .quantile(0.5, 0.05)
                 .quantile(0.9, 0.01)
                 .quantile(0.99, 0.001)
-                .name("requests_latency").help("Request latency").labelNames("method", "uri").register();
+                .name("requests_latency").help("Request latency").labelNames("method", "uri", "class").create();
         sleepTimeSummary = Summary.build()
-                .name("sleep_time").help("Sleep time").register();
+                .name("sleep_time").help("Sleep time").create();
+        timeToFirstByteSummary = Summary.build()
+                .quantile(0.1, 0.05)
+                .quantile(0.5, 0.05)
+                .quantile(0.9, 0.01)
+                .quantile(0.99, 0.001)
+                .name("time_to_first_byte").help("Time to first byte of streaming responses").create();
         requestSizeSummary = Summary.build()
                 .quantile(0.1, 0.05)
                 .quantile(0.5, 0.05)
                 .quantile(0.9, 0.01)
                 .quantile(0.99, 0.001)
-                .name("request_size").help("Request size").register();
+                .name("request_size").help("Request size").create();
         responseSizeSummary = Summary.build()
                 .quantile(0.1, 0.05)
                 .quantile(0.5, 0.05)
                 .quantile(0.9, 0.01)
                 .quantile(0.99, 0.001)
-                .name("response_size").help("Response size").register();
-
-        http1XXCounter = Counter.build().name("http_1XX_requests_total").help("HTTP 1XX Status Codes").register();
-        http2XXCounter = Counter.build().name("http_2XX_requests_total").help("HTTP 2XX Status Codes").register();
-        http3XXCounter = Counter.build().name("http_3XX_requests_total").help("HTTP 3XX Status Codes").register();
-        http4XXCounter = Counter.build().name("http_4XX_requests_total").help("HTTP 4XX Status Codes").register();
-        http5XXCounter = Counter.build().name("http_5XX_requests_total").help("HTTP 5XX Status Codes").register();
+                .name("response_size").help("Response size").create();
+        compressedResponseSizeSummary = Summary.build()
+                .quantile(0.1, 0.05)
+                .quantile(0.5, 0.05)
+                .quantile(0.9, 0.01)
+                .quantile(0.99, 0.001)
+                .name("compressed_response_size").help("Compressed response size").create();
 
         DefaultExports.initialize();
 
-        try {
-            new HTTPServer(serverArgs.getMetricsPort(), true);
-        } catch (IOException e) {
-            throw new IllegalStateException(e);
+        if (!serverArgs.isNettyMetricsServer()) {
+            try {
+                new HTTPServer(serverArgs.getMetricsPort(), true);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
         }
     }
 
-    void incrementHttpStatusCodeCounters(int statusCode) {
-        if (statusCode >= 100 && statusCode < 200) {
-            http1XXCounter.inc();
-        } else if (statusCode < 300) {
-            http2XXCounter.inc();
-        } else if (statusCode < 400) {
-            http3XXCounter.inc();
-        } else if (statusCode < 500) {
-            http4XXCounter.inc();
-        } else if (statusCode < 600) {
-            http5XXCounter.inc();
-        }
+    @Override
+    protected void writeMetrics(Writer writer) throws IOException {
+        TextFormat.write004(writer, CollectorRegistry.defaultRegistry.metricFamilySamples());
+    }
+
+    @Override
+    protected void registerEventLoopMetrics(List<EventLoopProbe> probes) {
+        new EventLoopCollector(probes).register();
+    }
+
+    @Override
+    protected void registerAllocatorMetrics(AllocatorMetrics allocatorMetrics) {
+        new AllocatorCollector(allocatorMetrics).register();
+    }
+
+    @Override
+    protected void registerBackpressureMetrics(BackpressureMetrics backpressureMetrics) {
+        new BackpressureCollector(backpressureMetrics).register();
+    }
+
+    @Override
+    protected ConnectionMetrics newConnectionMetrics() {
+        return new PrometheusConnectionMetrics();
+    }
+
+    @Override
+    protected HandshakeMetrics newHandshakeMetrics() {
+        return new PrometheusHandshakeMetrics();
     }
 
-    public Counter getTotalRequestCounter() {
-        return totalRequestCounter;
+    @Override
+    protected void registerSamplingMetrics(RequestSampler requestSampler) {
+        new SamplingCollector(requestSampler).register();
+        new SampledCollector(requestSampler, requestLatencyHistogram, requestLatencySummary, sleepTimeSummary,
+                timeToFirstByteSummary, requestSizeSummary, responseSizeSummary, compressedResponseSizeSummary)
+                .register();
+    }
+
+    StripedCounter getResponseCounter(int statusCode) {
+        return responseCounters.get(statusCode);
     }
 
-    public Gauge getInprogressRequestsGauge() {
-        return inprogressRequestsGauge;
+    /**
+     * Get the metrics for the given method and URI. The URI is normalized first, so that the query strings and the
+     * distinct paths do not grow the caches. The children are resolved once for each (method, route) pair and cached
+     * by each thread, which is bounded by the number of routes.
+     */
+    public RouteMetrics getRouteMetrics(String method, String uri) {
+        String route = uriNormalizer.normalize(uri);
+        Map<String, RouteMetrics> routeMap = cachedRouteMetrics.get().computeIfAbsent(method, k -> new HashMap<>());
+        RouteMetrics metrics = routeMap.get(route);
+        if (metrics == null) {
+            metrics = routeMetrics.computeIfAbsent(method, k -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(route, k -> new RouteMetrics(method, route, requestLatencyHistogram,
+                            requestLatencySummary));
+            routeMap.put(route, metrics);
+        }
+        return metrics;
     }
 
     public Histogram getRequestLatencyHistogram() {
@@ -129,6 +217,10 @@ public class NettyHttpServer extends AbstractNettyHttpServer {
         return sleepTimeSummary;
     }
 
+    public Summary getTimeToFirstByteSummary() {
+        return timeToFirstByteSummary;
+    }
+
     public Summary getRequestSizeSummary() {
         return requestSizeSummary;
     }
@@ -137,6 +229,41 @@ public class NettyHttpServer extends AbstractNettyHttpServer {
         return responseSizeSummary;
     }
 
+    public Summary getCompressedResponseSizeSummary() {
+        return compressedResponseSizeSummary;
+    }
+
+    /**
+     * Collects the striped counters, which are summed only when the metrics are scraped.
+     */
+    private class CountersCollector extends Collector {
+
+        @Override
+        public List<MetricFamilySamples> collect() {
+            List<MetricFamilySamples.Sample> totalSamples = new ArrayList<>();
+            List<MetricFamilySamples.Sample> inprogressSamples = new ArrayList<>();
+            List<String> labelNames = Arrays.asList("method", "uri");
+            routeMetrics.forEach((method, routes) -> routes.forEach((route, metrics) -> {
+                List<String> labelValues = Arrays.asList(method, route);
+                totalSamples.add(new MetricFamilySamples.Sample("requests_total", labelNames, labelValues,
+                        metrics.getTotalRequestCounter().sum()));
+                inprogressSamples.add(new MetricFamilySamples.Sample("inprogress_requests", labelNames, labelValues,
+                        metrics.getInprogressRequests().sum()));
+            }));
+            List<MetricFamilySamples.Sample> responseSamples = new ArrayList<>();
+            List<String> statusLabelNames = Arrays.asList("code", "class");
+            responseCounters.forEach((counter, code) -> responseSamples.add(new MetricFamilySamples.Sample(
+                    "responses_total", statusLabelNames,
+                    Arrays.asList(StatusCodeTable.code(code), StatusCodeTable.statusClass(code)), counter.sum())));
+            List<MetricFamilySamples> mfs = new ArrayList<>(3);
+            mfs.add(new MetricFamilySamples("requests_total", Type.COUNTER, "Requests total", totalSamples));
+            mfs.add(new MetricFamilySamples("inprogress_requests", Type.GAUGE, "Inprogress Requests",
+                    inprogressSamples));
+            mfs.add(new MetricFamilySamples("responses_total", Type.COUNTER, "Responses by status code",
+                    responseSamples));
+            return mfs;
+        }
+    }
 
     public static void main(String[] args) {
         Counter totalRequestCounter = Counter.build()
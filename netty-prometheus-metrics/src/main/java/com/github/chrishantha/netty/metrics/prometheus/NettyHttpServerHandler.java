@@ -17,8 +17,7 @@ package com.github.chrishantha.netty.metrics.prometheus;
 
 import com.github.chrishantha.netty.metrics.base.AbstractNettyHttpServerHandler;
 import com.github.chrishantha.netty.metrics.base.args.HandlerArgs;
-import io.prometheus.client.Histogram;
-import io.prometheus.client.Summary;
+import io.prometheus.client.Collector;
 
 public class NettyHttpServerHandler extends AbstractNettyHttpServerHandler<NettyHttpServer> {
 
@@ -31,41 +30,53 @@ public class NettyHttpServerHandler extends AbstractNettyHttpServerHandler<Netty
     }
 
     @Override
-    protected Object requestStart(String method, String uri) {
-        httpServer.getInprogressRequestsGauge().labels(method, uri).inc();
-        httpServer.getTotalRequestCounter().labels(method, uri).inc();
-        return new Object[]{httpServer.getRequestLatencyHistogram().labels(method, uri).startTimer(),
-                httpServer.getRequestLatencySummary().labels(method, uri).startTimer()};
+    protected long requestStart(String method, String uri) {
+        RouteMetrics routeMetrics = httpServer.getRouteMetrics(method, uri);
+        routeMetrics.getInprogressRequests().increment();
+        routeMetrics.getTotalRequestCounter().increment();
+        return System.nanoTime();
     }
 
     @Override
-    protected void requestEnd(String method, String uri, int statusCode, Object object) {
-        httpServer.getInprogressRequestsGauge().labels(method, uri).dec();
-        Object[] objects = (Object[]) object;
-        ((Histogram.Timer) objects[0]).observeDuration();
-        ((Summary.Timer) objects[1]).observeDuration();
-        httpServer.incrementHttpStatusCodeCounters(statusCode);
+    protected void requestEnd(String method, String uri, int statusCode, long startNanos, int weight) {
+        RouteMetrics routeMetrics = httpServer.getRouteMetrics(method, uri);
+        routeMetrics.getInprogressRequests().decrement();
+        if (weight > 0) {
+            // The counts and sums are scaled by the weight when the metrics are collected
+            routeMetrics.getLatency(statusCode).observe(
+                    (System.nanoTime() - startNanos) / Collector.NANOSECONDS_PER_SECOND);
+        }
+        httpServer.getResponseCounter(statusCode).increment();
     }
 
     @Override
-    protected Object sleepStart() {
-        return httpServer.getSleepTimeSummary().startTimer();
+    protected long sleepStart() {
+        return System.nanoTime();
     }
 
     @Override
-    protected void sleepEnd(Object object) {
-        ((Summary.Timer) object).observeDuration();
+    protected void sleepEnd(long startNanos, int weight) {
+        httpServer.getSleepTimeSummary().observe((System.nanoTime() - startNanos) / Collector.NANOSECONDS_PER_SECOND);
     }
 
     @Override
-    protected void requestSize(int size) {
+    protected void firstByte(long startNanos, int weight) {
+        httpServer.getTimeToFirstByteSummary().observe(
+                (System.nanoTime() - startNanos) / Collector.NANOSECONDS_PER_SECOND);
+    }
+
+    @Override
+    protected void requestSize(int size, int weight) {
         httpServer.getRequestSizeSummary().observe(size);
     }
 
     @Override
-    protected void responseSize(int size) {
+    protected void responseSize(int size, int weight) {
         httpServer.getResponseSizeSummary().observe(size);
     }
 
-
+    @Override
+    protected void compressedResponseSize(int size, int weight) {
+        httpServer.getCompressedResponseSizeSummary().observe(size);
+    }
 }
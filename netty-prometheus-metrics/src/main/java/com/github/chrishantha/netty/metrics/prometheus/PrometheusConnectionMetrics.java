@@ -0,0 +1,64 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.prometheus;
+
+import com.github.chrishantha.netty.metrics.base.connection.ConnectionMetrics;
+import io.prometheus.client.Collector;
+import io.prometheus.client.CounterMetricFamily;
+import io.prometheus.client.GaugeMetricFamily;
+import io.prometheus.client.Histogram;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Connection metrics recorded with Prometheus histograms. The connection and byte counts are collected when the
+ * metrics are scraped.
+ */
+class PrometheusConnectionMetrics extends ConnectionMetrics {
+
+    private final Histogram lifetimeHistogram = Histogram.build()
+            .buckets(.01, .1, 1, 5, 10, 30, 60, 300, 600, 1800, 3600)
+            .name("connection_lifetime_seconds").help("Connection lifetime in seconds.").register();
+
+    private final Histogram requestsHistogram = Histogram.build()
+            .buckets(1, 2, 5, 10, 50, 100, 500, 1000, 5000, 10000)
+            .name("connection_requests").help("Requests per connection").register();
+
+    PrometheusConnectionMetrics() {
+        new CountersCollector().register();
+    }
+
+    @Override
+    protected void recordConnection(long lifetimeNanos, long requests) {
+        lifetimeHistogram.observe(lifetimeNanos / Collector.NANOSECONDS_PER_SECOND);
+        requestsHistogram.observe(requests);
+    }
+
+    private class CountersCollector extends Collector {
+
+        @Override
+        public List<MetricFamilySamples> collect() {
+            List<MetricFamilySamples> mfs = new ArrayList<>(4);
+            mfs.add(new GaugeMetricFamily("connections_active", "Active connections", getActiveConnections()));
+            mfs.add(new CounterMetricFamily("connections_total", "Accepted connections", getTotalConnections()));
+            mfs.add(new CounterMetricFamily("bytes_read_total", "Bytes read from connections", getBytesRead()));
+            mfs.add(new CounterMetricFamily("bytes_written_total", "Bytes written to connections",
+                    getBytesWritten()));
+            return mfs;
+        }
+    }
+}
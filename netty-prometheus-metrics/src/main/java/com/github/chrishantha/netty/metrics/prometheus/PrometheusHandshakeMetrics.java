@@ -0,0 +1,61 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.prometheus;
+
+import com.github.chrishantha.netty.metrics.base.ssl.HandshakeMetrics;
+import io.prometheus.client.Collector;
+import io.prometheus.client.CounterMetricFamily;
+import io.prometheus.client.GaugeMetricFamily;
+import io.prometheus.client.Histogram;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * TLS handshake metrics recorded with a Prometheus histogram. The handshake counts are collected when the metrics are
+ * scraped.
+ */
+class PrometheusHandshakeMetrics extends HandshakeMetrics {
+
+    private final Histogram latencyHistogram = Histogram.build()
+            .buckets(.001, .0025, .005, .01, .025, .05, .1, .25, .5, 1)
+            .name("ssl_handshake_latency_seconds").help("SSL handshake latency in seconds.").register();
+
+    PrometheusHandshakeMetrics() {
+        new CountersCollector().register();
+    }
+
+    @Override
+    protected void recordHandshake(long latencyNanos) {
+        latencyHistogram.observe(latencyNanos / Collector.NANOSECONDS_PER_SECOND);
+    }
+
+    private class CountersCollector extends Collector {
+
+        @Override
+        public List<MetricFamilySamples> collect() {
+            List<MetricFamilySamples> mfs = new ArrayList<>(4);
+            mfs.add(new CounterMetricFamily("ssl_handshakes_total", "Completed SSL handshakes", getHandshakes()));
+            mfs.add(new CounterMetricFamily("ssl_handshakes_resumed_total", "Resumed SSL handshakes",
+                    getResumedHandshakes()));
+            mfs.add(new CounterMetricFamily("ssl_handshake_failures_total", "Failed SSL handshakes",
+                    getFailedHandshakes()));
+            mfs.add(new GaugeMetricFamily("ssl_resumption_ratio", "Ratio of resumed SSL handshakes",
+                    getResumptionRatio()));
+            return mfs;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.prometheus;
+
+import com.github.chrishantha.netty.metrics.base.status.StatusCodeTable;
+import com.github.chrishantha.netty.metrics.base.striped.StripedCounter;
+import io.prometheus.client.Histogram;
+import io.prometheus.client.Summary;
+
+/**
+ * Metrics for a (method, route) label pair. The counters are striped by event loop and the latencies are recorded
+ * with the metric children of each status class, which are resolved once.
+ */
+public final class RouteMetrics {
+
+    private final StripedCounter totalRequestCounter = new StripedCounter();
+    private final StripedCounter inprogressRequests = new StripedCounter();
+    private final StatusCodeTable<Latency> latencies;
+
+    RouteMetrics(String method, String route, Histogram requestLatencyHistogram, Summary requestLatencySummary) {
+        this.latencies = StatusCodeTable.byClass(statusCode -> {
+            String statusClass = StatusCodeTable.statusClass(statusCode);
+            return new Latency(requestLatencyHistogram.labels(method, route, statusClass),
+                    requestLatencySummary.labels(method, route, statusClass));
+        });
+    }
+
+    public StripedCounter getTotalRequestCounter() {
+        return totalRequestCounter;
+    }
+
+    public StripedCounter getInprogressRequests() {
+        return inprogressRequests;
+    }
+
+    /**
+     * Get the latency metrics for the class of the given status code.
+     */
+    public Latency getLatency(int statusCode) {
+        return latencies.get(statusCode);
+    }
+
+    /**
+     * Latency metric children of a status class
+     */
+    public static final class Latency {
+
+        private final Histogram.Child histogram;
+        private final Summary.Child summary;
+
+        private Latency(Histogram.Child histogram, Summary.Child summary) {
+            this.histogram = histogram;
+            this.summary = summary;
+        }
+
+        public void observe(double latency) {
+            histogram.observe(latency);
+            summary.observe(latency);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.prometheus;
+
+import com.github.chrishantha.netty.metrics.base.sampling.RequestSampler;
+import io.prometheus.client.Collector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Collects the distributions, which record only the sampled requests.
+ * <p>
+ * Every sampled request has the same weight, the sample rate. The counts, sums and buckets are therefore scaled by
+ * the sample rate when the metrics are collected. The quantiles are not changed by a uniform weight.
+ */
+class SampledCollector extends Collector {
+
+    private final RequestSampler requestSampler;
+
+    private final List<Collector> collectors;
+
+    SampledCollector(RequestSampler requestSampler, Collector... collectors) {
+        this.requestSampler = requestSampler;
+        this.collectors = Arrays.asList(collectors);
+    }
+
+    @Override
+    public List<MetricFamilySamples> collect() {
+        int sampleRate = requestSampler.getSampleRate();
+        List<MetricFamilySamples> mfs = new ArrayList<>();
+        for (Collector collector : collectors) {
+            for (MetricFamilySamples family : collector.collect()) {
+                mfs.add(sampleRate == 1 ? family : scale(family, sampleRate));
+            }
+        }
+        return mfs;
+    }
+
+    private static MetricFamilySamples scale(MetricFamilySamples family, int sampleRate) {
+        List<MetricFamilySamples.Sample> samples = new ArrayList<>(family.samples.size());
+        for (MetricFamilySamples.Sample sample : family.samples) {
+            if (sample.name.endsWith("_count") || sample.name.endsWith("_sum") || sample.name.endsWith("_bucket")) {
+                sample = new MetricFamilySamples.Sample(sample.name, sample.labelNames, sample.labelValues,
+                        sample.value * sampleRate);
+            }
+            samples.add(sample);
+        }
+        return new MetricFamilySamples(family.name, family.type, family.help, samples);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2018 M. Isuru Tharanga Chrishantha Perera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.chrishantha.netty.metrics.prometheus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Maps request URIs to a bounded set of values for the "uri" label.
+ * <p>
+ * The query string is removed and the path is matched against the route templates. A template such as
+ * {@code /users/{id}/orders} matches any value in place of {@code {id}} within a single path segment. Paths not
+ * matching any template are used as they are until the maximum number of distinct paths is reached. After that, the
+ * paths are mapped to the {@link #OVERFLOW} value.
+ */
+public final class UriNormalizer {
+
+    public static final String OVERFLOW = "other";
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{[^/}]*}");
+
+    private final List<Route> routes;
+
+    private final int maxUris;
+
+    private final Set<String> uris = ConcurrentHashMap.newKeySet();
+
+    public UriNormalizer(List<String> templates, int maxUris) {
+        this.routes = new ArrayList<>(templates.size());
+        for (String template : templates) {
+            routes.add(new Route(template));
+        }
+        this.maxUris = maxUris;
+    }
+
+    public String normalize(String uri) {
+        int end = uri.length();
+        for (int i = 0; i < end; i++) {
+            char c = uri.charAt(i);
+            if (c == '?' || c == '#') {
+                end = i;
+                break;
+            }
+        }
+        String path = end == uri.length() ? uri : uri.substring(0, end);
+        for (Route route : routes) {
+            if (route.pattern.matcher(path).matches()) {
+                return route.template;
+            }
+        }
+        if (uris.contains(path)) {
+            return path;
+        }
+        // The limit may be exceeded slightly when paths are added concurrently
+        if (uris.size() < maxUris) {
+            uris.add(path);
+            return path;
+        }
+        return OVERFLOW;
+    }
+
+    private static final class Route {
+
+        private final String template;
+        private final Pattern pattern;
+
+        private Route(String template) {
+            this.template = template;
+            StringBuilder regex = new StringBuilder();
+            Matcher matcher = PLACEHOLDER.matcher(template);
+            int start = 0;
+            while (matcher.find()) {
+                regex.append(Pattern.quote(template.substring(start, matcher.start()))).append("[^/]+");
+                start = matcher.end();
+            }
+            regex.append(Pattern.quote(template.substring(start)));
+            this.pattern = Pattern.compile(regex.toString());
+        }
+    }
+}